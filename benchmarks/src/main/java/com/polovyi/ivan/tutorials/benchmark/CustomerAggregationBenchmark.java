@@ -0,0 +1,140 @@
+package com.polovyi.ivan.tutorials.benchmark;
+
+import com.polovyi.ivan.tutorials.client.AddressClient;
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.client.FinancialClient;
+import com.polovyi.ivan.tutorials.client.LatencySimulator;
+import com.polovyi.ivan.tutorials.client.LoyaltyClient;
+import com.polovyi.ivan.tutorials.client.PurchaseTransactionClient;
+import com.polovyi.ivan.tutorials.configuration.DownstreamExecutors;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties.ExecutionMode;
+import com.polovyi.ivan.tutorials.configuration.SimulationProperties.Distribution;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import com.polovyi.ivan.tutorials.service.CustomerCompletableFeatureService;
+import com.polovyi.ivan.tutorials.service.CustomerService;
+import com.polovyi.ivan.tutorials.service.CustomerServiceFixtures;
+import com.polovyi.ivan.tutorials.utils.VirtualThreads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * One operation = <concurrency> simultaneous getCustomerById requests, measured until the last one completes.
+ * Run with -prof gc to add allocation rates; add -p executionMode=VIRTUAL_THREADS on Java 21+.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class CustomerAggregationBenchmark {
+
+    public enum Strategy {
+        SEQUENTIAL,
+        THEN_COMBINE,
+        ALL_OF
+    }
+
+    @Param({"SEQUENTIAL", "THEN_COMBINE", "ALL_OF"})
+    public Strategy strategy;
+
+    @Param({"COMMON_POOL", "PLATFORM_POOLS"})
+    public ExecutionMode executionMode;
+
+    @Param({"10"})
+    public long latencyMillis;
+
+    @Param({"FIXED", "LOG_NORMAL"})
+    public Distribution latencyDistribution;
+
+    @Param({"1", "16", "64"})
+    public int concurrency;
+
+    private final AtomicInteger customerIds = new AtomicInteger();
+
+    private DownstreamExecutors downstreamExecutors;
+
+    private Executor requestThreads;
+
+    private Function<Integer, CompletableFuture<CustomerResponse>> getCustomerById;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DownstreamProperties downstreamProperties = new DownstreamProperties();
+        downstreamProperties.setExecutionMode(executionMode);
+        downstreamProperties.setCoalesceReads(false);
+        for (Downstream downstream : Downstream.values()) {
+            DownstreamProperties.Pool pool = downstreamProperties.client(downstream).getPool();
+            pool.setCoreSize(64);
+            pool.setMaxSize(64);
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        downstreamExecutors = new DownstreamExecutors(downstreamProperties, meterRegistry);
+        requestThreads = executionMode == ExecutionMode.VIRTUAL_THREADS
+                ? VirtualThreads.threadPerTaskExecutor("request-")
+                : Executors.newFixedThreadPool(concurrency);
+
+        CustomerRepository customerRepository = DownstreamStubs.repository();
+        LatencySimulator latencySimulator = DownstreamStubs.latencySimulator(latencyDistribution, latencyMillis);
+        AddressClient addressClient = DownstreamStubs.addressClient(latencySimulator);
+        PurchaseTransactionClient purchaseTransactionClient = DownstreamStubs.purchaseTransactionClient(
+                latencySimulator);
+        FinancialClient financialClient = DownstreamStubs.financialClient(latencySimulator);
+        LoyaltyClient loyaltyClient = DownstreamStubs.loyaltyClient(latencySimulator);
+
+        CustomerService customerService = CustomerServiceFixtures.customerService(customerRepository, addressClient,
+                purchaseTransactionClient, financialClient, loyaltyClient, downstreamExecutors, meterRegistry);
+        CustomerCompletableFeatureService customerCompletableFeatureService = CustomerServiceFixtures
+                .completableFeatureService(customerRepository, addressClient, purchaseTransactionClient,
+                        financialClient, loyaltyClient, downstreamProperties, downstreamExecutors, meterRegistry);
+
+        getCustomerById = switch (strategy) {
+            case SEQUENTIAL -> customerId -> CompletableFuture.supplyAsync(
+                    () -> customerService.getCustomerById(customerId), requestThreads);
+            case THEN_COMBINE -> customerCompletableFeatureService::getCustomerById;
+            case ALL_OF -> customerCompletableFeatureService::getCustomerByIdUsingAllOf;
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        downstreamExecutors.destroy();
+        if (requestThreads instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void getCustomerById(Blackhole blackhole) {
+        List<CompletableFuture<CustomerResponse>> responses = IntStream.range(0, concurrency)
+                .mapToObj(i -> getCustomerById.apply(customerIds.incrementAndGet()))
+                .collect(Collectors.toList());
+        responses.forEach(response -> blackhole.consume(response.join()));
+    }
+}
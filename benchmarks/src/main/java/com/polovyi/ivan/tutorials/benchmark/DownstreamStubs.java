@@ -0,0 +1,140 @@
+package com.polovyi.ivan.tutorials.benchmark;
+
+import com.polovyi.ivan.tutorials.client.AddressClient;
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.client.FinancialClient;
+import com.polovyi.ivan.tutorials.client.LatencySimulator;
+import com.polovyi.ivan.tutorials.client.LoyaltyClient;
+import com.polovyi.ivan.tutorials.client.PurchaseTransactionClient;
+import com.polovyi.ivan.tutorials.configuration.SimulationProperties;
+import com.polovyi.ivan.tutorials.configuration.SimulationProperties.Distribution;
+import com.polovyi.ivan.tutorials.configuration.SimulationProperties.Latency;
+import com.polovyi.ivan.tutorials.dto.Address;
+import com.polovyi.ivan.tutorials.dto.FinancialInfo;
+import com.polovyi.ivan.tutorials.dto.LoyaltyClientResponse;
+import com.polovyi.ivan.tutorials.dto.PurchaseTransaction;
+import com.polovyi.ivan.tutorials.entity.CustomerEntity;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import lombok.SneakyThrows;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * Stand-ins for the simulated downstreams. Latencies keep the application's 1:3:2:1 ratio
+ * (address, purchase transactions, financial, loyalty) scaled to the benchmark's unit.
+ */
+class DownstreamStubs {
+
+    private static final Address ADDRESS = Address.builder()
+            .id("address-1")
+            .street("Main Street")
+            .streetNumber("1")
+            .city("Springfield")
+            .state("Oregon")
+            .zipCode("97477")
+            .country("USA")
+            .build();
+
+    private static final Set<PurchaseTransaction> PURCHASE_TRANSACTIONS = IntStream.range(0, 5)
+            .mapToObj(i -> PurchaseTransaction.builder()
+                    .id("purchase-" + i)
+                    .paymentType("VISA")
+                    .amount(BigDecimal.valueOf(10L * i))
+                    .createdAt(LocalDate.of(2020, 1, 1))
+                    .build())
+            .collect(Collectors.toSet());
+
+    private static final Set<FinancialInfo> FINANCIAL_INFO = Set.of(
+            new FinancialInfo("financial-1", "4111-1111-1111-1111", "DE89370400440532013000"));
+
+    static CustomerRepository repository() {
+        return (CustomerRepository) Proxy.newProxyInstance(CustomerRepository.class.getClassLoader(),
+                new Class<?>[]{CustomerRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Optional.of(CustomerEntity.builder()
+                            .id((Integer) args[0])
+                            .fullName("Benchmark Customer")
+                            .phoneNumber("555-0100")
+                            .createdAt(LocalDate.of(2015, 6, 1))
+                            .build());
+                    /* Object methods reach the handler too, e.g. when a failing call logs the repository */
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "CustomerRepository stub";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static AddressClient addressClient(LatencySimulator latencySimulator) {
+        return new AddressClient(null, null, null, null) {
+            @Override
+            public Optional<Address> getAddressByCustomerId(Integer customerId) {
+                latencySimulator.simulate(Downstream.ADDRESS);
+                return Optional.of(ADDRESS);
+            }
+        };
+    }
+
+    static PurchaseTransactionClient purchaseTransactionClient(LatencySimulator latencySimulator) {
+        return new PurchaseTransactionClient(null, null, null) {
+            @Override
+            public Set<PurchaseTransaction> getPurchaseTransactionsByCustomerId(Integer customerId) {
+                latencySimulator.simulate(Downstream.PURCHASE_TRANSACTION);
+                return PURCHASE_TRANSACTIONS;
+            }
+        };
+    }
+
+    static FinancialClient financialClient(LatencySimulator latencySimulator) {
+        return new FinancialClient(null, null, null, null) {
+            @Override
+            public Set<FinancialInfo> getFinancialInfoByCustomerId(Integer customerId) {
+                latencySimulator.simulate(Downstream.FINANCIAL);
+                return FINANCIAL_INFO;
+            }
+        };
+    }
+
+    static LoyaltyClient loyaltyClient(LatencySimulator latencySimulator) {
+        return new LoyaltyClient(null, null, null) {
+            @Override
+            public Optional<LoyaltyClientResponse> getLoyaltyPointsByCustomerId(Integer customerId) {
+                latencySimulator.simulate(Downstream.LOYALTY);
+                return Optional.of(new LoyaltyClientResponse(1_000L));
+            }
+        };
+    }
+
+    @SneakyThrows
+    static void sleep(long millis) {
+        TimeUnit.MILLISECONDS.sleep(millis);
+    }
+
+    static LatencySimulator latencySimulator(Distribution distribution, long latencyMillis) {
+        SimulationProperties simulationProperties = new SimulationProperties();
+        latency(simulationProperties, Downstream.ADDRESS, distribution, latencyMillis);
+        latency(simulationProperties, Downstream.PURCHASE_TRANSACTION, distribution, 3 * latencyMillis);
+        latency(simulationProperties, Downstream.FINANCIAL, distribution, 2 * latencyMillis);
+        latency(simulationProperties, Downstream.LOYALTY, distribution, latencyMillis);
+        return new LatencySimulator(simulationProperties);
+    }
+
+    /*
+     * FIXED uses the latency as is; LOG_NORMAL uses it as the median with a p99 five times higher.
+     */
+    private static void latency(SimulationProperties simulationProperties, Downstream downstream,
+            Distribution distribution, long millis) {
+        Latency latency = simulationProperties.profile(downstream).getLatency();
+        latency.setDistribution(distribution);
+        latency.setFixed(Duration.ofMillis(millis));
+        latency.setMedian(Duration.ofMillis(millis));
+        latency.setP99(Duration.ofMillis(5 * millis));
+    }
+}
@@ -0,0 +1,106 @@
+package com.polovyi.ivan.tutorials.benchmark;
+
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties.ExecutionMode;
+import com.polovyi.ivan.tutorials.utils.VirtualThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The aggregation patterns in isolation: <fanOut> independent downstream calls of <latencyMillis> each,
+ * combined sequentially, with a thenCombine chain or with allOf.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class FanOutBenchmark {
+
+    @Param({"COMMON_POOL", "PLATFORM_POOLS"})
+    public ExecutionMode executionMode;
+
+    @Param({"5"})
+    public long latencyMillis;
+
+    @Param({"2", "4", "8"})
+    public int fanOut;
+
+    private Executor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = switch (executionMode) {
+            case COMMON_POOL -> ForkJoinPool.commonPool();
+            case PLATFORM_POOLS -> Executors.newFixedThreadPool(64);
+            case VIRTUAL_THREADS -> VirtualThreads.threadPerTaskExecutor("fan-out-");
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (executor instanceof ExecutorService executorService && executor != ForkJoinPool.commonPool()) {
+            executorService.shutdown();
+        }
+    }
+
+    @Benchmark
+    public List<Integer> sequential() {
+        List<Integer> results = new ArrayList<>(fanOut);
+        for (int i = 0; i < fanOut; i++) {
+            results.add(call(i));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<Integer> thenCombine() {
+        CompletableFuture<List<Integer>> results = CompletableFuture.completedFuture(new ArrayList<>(fanOut));
+        for (int i = 0; i < fanOut; i++) {
+            int section = i;
+            results = results.thenCombine(CompletableFuture.supplyAsync(() -> call(section), executor),
+                    (list, result) -> {
+                        list.add(result);
+                        return list;
+                    });
+        }
+        return results.join();
+    }
+
+    @Benchmark
+    public List<Integer> allOf() {
+        List<CompletableFuture<Integer>> calls = new ArrayList<>(fanOut);
+        for (int i = 0; i < fanOut; i++) {
+            int section = i;
+            calls.add(CompletableFuture.supplyAsync(() -> call(section), executor));
+        }
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0]))
+                .thenApply(unused -> calls.stream().map(CompletableFuture::join).toList())
+                .join();
+    }
+
+    private Integer call(int section) {
+        DownstreamStubs.sleep(latencyMillis);
+        return section;
+    }
+}
@@ -2,12 +2,18 @@ package com.polovyi.ivan.tutorials.client;
 
 import com.polovyi.ivan.tutorials.configuration.DataLoader;
 import com.polovyi.ivan.tutorials.dto.Address;
-import com.polovyi.ivan.tutorials.utils.SleepUtils;
+import com.polovyi.ivan.tutorials.event.CustomerChangedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -16,17 +22,50 @@ public class AddressClient {
 
     private final DataLoader dataLoader;
 
+    private final LatencySimulator latencySimulator;
+
+    private final DownstreamGuard downstreamGuard;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Cacheable(cacheNames = "address", key = "#customerId")
     public Optional<Address> getAddressByCustomerId(Integer customerId) {
         log.info("Getting address by customerId {}", customerId);
-        SleepUtils.loadingSimulator(1);
-        return Optional.ofNullable(dataLoader.getAddressClientResponses().get(customerId));
+        return downstreamGuard.call(Downstream.ADDRESS, "get", () -> {
+            latencySimulator.simulate(Downstream.ADDRESS);
+            return Optional.ofNullable(dataLoader.getAddressClientResponses().get(customerId));
+        });
 
     }
 
-    public void updateAddressByCustomerId(Integer customerId, Address address) {
+    public Map<Integer, Address> getAddressesByCustomerIds(Collection<Integer> customerIds) {
+        log.info("Getting addresses for {} customers", customerIds.size());
+        return downstreamGuard.call(Downstream.ADDRESS, "get-batch", () -> {
+            latencySimulator.simulate(Downstream.ADDRESS);
+            return customerIds.stream()
+                    .filter(customerId -> dataLoader.getAddressClientResponses().get(customerId) != null)
+                    .collect(Collectors.toMap(Function.identity(), dataLoader.getAddressClientResponses()::get));
+        });
+    }
+
+    public Address updateAddressByCustomerId(Integer customerId, Address address) {
         log.info("Updating address by customerId {}", customerId);
-        SleepUtils.loadingSimulator(1);
-        dataLoader.getAddressClientResponses().put(customerId, address);
+        Address previous = downstreamGuard.call(Downstream.ADDRESS, "update", () -> {
+            latencySimulator.simulate(Downstream.ADDRESS);
+            return dataLoader.getAddressClientResponses().put(customerId, address);
+        });
+        eventPublisher.publishEvent(new CustomerChangedEvent(customerId, Downstream.ADDRESS));
+        return previous;
+    }
+
+    public Address deleteAddressByCustomerId(Integer customerId) {
+        log.info("Deleting address by customerId {}", customerId);
+        Address previous = downstreamGuard.call(Downstream.ADDRESS, "delete", () -> {
+            latencySimulator.simulate(Downstream.ADDRESS);
+            return dataLoader.getAddressClientResponses().remove(customerId);
+        });
+        eventPublisher.publishEvent(new CustomerChangedEvent(customerId, Downstream.ADDRESS));
+        return previous;
     }
 
 }
@@ -0,0 +1,115 @@
+package com.polovyi.ivan.tutorials.client;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+public class BatchingDispatcher<K, V> {
+
+    private final String name;
+    private final Function<Set<K>, Map<K, V>> bulkLoader;
+    private final Executor executor;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSize;
+    private final Timer queueDelay;
+
+    private List<Pending<K, V>> batch = new ArrayList<>();
+
+    public BatchingDispatcher(String name, Function<Set<K>, Map<K, V>> bulkLoader, Executor executor,
+            Duration window, int maxBatchSize, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.bulkLoader = bulkLoader;
+        this.executor = executor;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSize = DistributionSummary.builder("batch.size")
+                .description("Distinct keys sent in one bulk call")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.queueDelay = Timer.builder("batch.queue.delay")
+                .description("Time a request waited in the buffer before its batch was dispatched")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<V> load(K key) {
+        Pending<K, V> pending = new Pending<>(key, System.nanoTime(), new CompletableFuture<>());
+        List<Pending<K, V>> full = null;
+        List<Pending<K, V>> opened = null;
+        synchronized (this) {
+            batch.add(pending);
+            if (batch.size() >= maxBatchSize) {
+                full = batch;
+                batch = new ArrayList<>();
+            } else if (batch.size() == 1) {
+                opened = batch;
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        } else if (opened != null) {
+            List<Pending<K, V>> scheduled = opened;
+            /* the timer only closes the batch, the bulk call itself goes to the executor */
+            CompletableFuture.delayedExecutor(window.toNanos(), TimeUnit.NANOSECONDS, Runnable::run)
+                    .execute(() -> flush(scheduled));
+        }
+        return pending.result();
+    }
+
+    private void flush(List<Pending<K, V>> scheduled) {
+        synchronized (this) {
+            if (batch != scheduled) {
+                return;
+            }
+            batch = new ArrayList<>();
+        }
+        dispatch(scheduled);
+    }
+
+    /*
+     * A saturated executor fails the whole batch at once; otherwise its callers would wait forever.
+     */
+    private void dispatch(List<Pending<K, V>> requests) {
+        try {
+            executor.execute(() -> send(requests));
+        } catch (RejectedExecutionException rejected) {
+            log.warn("The {} executor rejected a batch of {} requests", name, requests.size());
+            requests.forEach(request -> request.result().completeExceptionally(rejected));
+        }
+    }
+
+    private void send(List<Pending<K, V>> requests) {
+        long dispatchedAt = System.nanoTime();
+        requests.forEach(request -> queueDelay.record(dispatchedAt - request.enqueuedAt(), TimeUnit.NANOSECONDS));
+        Set<K> keys = requests.stream()
+                .map(Pending::key)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        batchSize.record(keys.size());
+        log.info("Dispatching a {} batch of {} keys for {} requests", name, keys.size(), requests.size());
+        try {
+            Map<K, V> results = bulkLoader.apply(keys);
+            requests.forEach(request -> request.result().complete(results.get(request.key())));
+        } catch (Throwable failure) {
+            requests.forEach(request -> request.result().completeExceptionally(failure));
+        }
+    }
+
+    private record Pending<K, V>(K key, long enqueuedAt, CompletableFuture<V> result) {
+    }
+}
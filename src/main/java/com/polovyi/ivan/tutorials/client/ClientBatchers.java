@@ -0,0 +1,67 @@
+package com.polovyi.ivan.tutorials.client;
+
+import com.polovyi.ivan.tutorials.configuration.DownstreamExecutors;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
+import com.polovyi.ivan.tutorials.dto.Address;
+import com.polovyi.ivan.tutorials.dto.FinancialInfo;
+import com.polovyi.ivan.tutorials.dto.LoyaltyClientResponse;
+import com.polovyi.ivan.tutorials.dto.PurchaseTransaction;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+@Component
+public class ClientBatchers {
+
+    private final BatchingDispatcher<Integer, Address> address;
+    private final BatchingDispatcher<Integer, Set<PurchaseTransaction>> purchaseTransaction;
+    private final BatchingDispatcher<Integer, Set<FinancialInfo>> financial;
+    private final BatchingDispatcher<Integer, LoyaltyClientResponse> loyalty;
+
+    private final DownstreamProperties downstreamProperties;
+    private final DownstreamExecutors downstreamExecutors;
+    private final MeterRegistry meterRegistry;
+
+    public ClientBatchers(AddressClient addressClient, PurchaseTransactionClient purchaseTransactionClient,
+            FinancialClient financialClient, LoyaltyClient loyaltyClient, DownstreamProperties downstreamProperties,
+            DownstreamExecutors downstreamExecutors, MeterRegistry meterRegistry) {
+        this.downstreamProperties = downstreamProperties;
+        this.downstreamExecutors = downstreamExecutors;
+        this.meterRegistry = meterRegistry;
+        this.address = create(Downstream.ADDRESS, addressClient::getAddressesByCustomerIds);
+        this.purchaseTransaction = create(Downstream.PURCHASE_TRANSACTION,
+                purchaseTransactionClient::getPurchaseTransactionsByCustomerIds);
+        this.financial = create(Downstream.FINANCIAL, financialClient::getFinancialInfoByCustomerIds);
+        this.loyalty = create(Downstream.LOYALTY, loyaltyClient::getLoyaltyPointsByCustomerIds);
+    }
+
+    public Optional<BatchingDispatcher<Integer, Address>> address() {
+        return Optional.ofNullable(address);
+    }
+
+    public Optional<BatchingDispatcher<Integer, Set<PurchaseTransaction>>> purchaseTransaction() {
+        return Optional.ofNullable(purchaseTransaction);
+    }
+
+    public Optional<BatchingDispatcher<Integer, Set<FinancialInfo>>> financial() {
+        return Optional.ofNullable(financial);
+    }
+
+    public Optional<BatchingDispatcher<Integer, LoyaltyClientResponse>> loyalty() {
+        return Optional.ofNullable(loyalty);
+    }
+
+    private <V> BatchingDispatcher<Integer, V> create(Downstream downstream,
+            Function<Set<Integer>, Map<Integer, V>> bulkLoader) {
+        DownstreamProperties.Batching batching = downstreamProperties.client(downstream).getBatching();
+        if (!batching.isEnabled()) {
+            return null;
+        }
+        return new BatchingDispatcher<>(downstream.key(), bulkLoader, downstreamExecutors.get(downstream),
+                batching.getWindow(), batching.getMaxBatchSize(), meterRegistry);
+    }
+}
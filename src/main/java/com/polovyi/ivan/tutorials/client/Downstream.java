@@ -0,0 +1,14 @@
+package com.polovyi.ivan.tutorials.client;
+
+public enum Downstream {
+
+    REPOSITORY,
+    ADDRESS,
+    PURCHASE_TRANSACTION,
+    FINANCIAL,
+    LOYALTY;
+
+    public String key() {
+        return name().toLowerCase().replace('_', '-');
+    }
+}
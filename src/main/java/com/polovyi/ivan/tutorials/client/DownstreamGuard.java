@@ -0,0 +1,132 @@
+package com.polovyi.ivan.tutorials.client;
+
+import com.polovyi.ivan.tutorials.concurrent.Bulkhead;
+import com.polovyi.ivan.tutorials.concurrent.CircuitBreaker;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/*
+ * Every client call passes through its downstream's circuit breaker and bulkhead before it is timed. A refused call
+ * fails at once with 503: reads then degrade their section, writes are compensated. Reads answered from a client's
+ * cache never get here, so cached customers keep their sections while a circuit is open.
+ */
+@Component
+public class DownstreamGuard {
+
+    private final DownstreamMetrics downstreamMetrics;
+    private final Map<Downstream, CircuitBreaker> circuitBreakers = new EnumMap<>(Downstream.class);
+    private final Map<Downstream, Bulkhead> bulkheads = new EnumMap<>(Downstream.class);
+
+    public DownstreamGuard(DownstreamMetrics downstreamMetrics, DownstreamProperties downstreamProperties,
+            MeterRegistry meterRegistry) {
+        this.downstreamMetrics = downstreamMetrics;
+        for (Downstream downstream : Downstream.values()) {
+            DownstreamProperties.Client client = downstreamProperties.client(downstream);
+            DownstreamProperties.CircuitBreaker circuitBreaker = client.getCircuitBreaker();
+            if (circuitBreaker.isEnabled()) {
+                CircuitBreaker breaker = CircuitBreaker.builder()
+                        .name(downstream.key())
+                        .windowSize(circuitBreaker.getWindowSize())
+                        .minimumCalls(circuitBreaker.getMinimumCalls())
+                        .failureRateThreshold(circuitBreaker.getFailureRateThreshold())
+                        .slowCallRateThreshold(circuitBreaker.getSlowCallRateThreshold())
+                        .slowCallDuration(circuitBreaker.getSlowCallDuration())
+                        .openDuration(circuitBreaker.getOpenDuration())
+                        .halfOpenCalls(circuitBreaker.getHalfOpenCalls())
+                        .build();
+                breaker.bindTo(meterRegistry);
+                circuitBreakers.put(downstream, breaker);
+            }
+            if (client.getBulkhead().isEnabled()) {
+                Bulkhead bulkhead = new Bulkhead(downstream.key(), client.getBulkhead().getMaxConcurrentCalls());
+                bulkhead.bindTo(meterRegistry);
+                bulkheads.put(downstream, bulkhead);
+            }
+        }
+    }
+
+    public <T> T call(Downstream downstream, String operation, Supplier<T> call) {
+        CircuitBreaker circuitBreaker = acquire(downstream);
+        Bulkhead bulkhead = bulkheads.get(downstream);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = downstreamMetrics.record(downstream, operation, call);
+            success = true;
+            return result;
+        } finally {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+            if (circuitBreaker != null) {
+                long duration = System.nanoTime() - start;
+                if (success) {
+                    circuitBreaker.onSuccess(duration);
+                } else {
+                    circuitBreaker.onError(duration);
+                }
+            }
+        }
+    }
+
+    /*
+     * A cancelled call (the caller's budget ran out, or a sibling failed) still reports to the breaker, so a HALF_OPEN
+     * trial is never left unaccounted for.
+     */
+    public <T> Mono<T> call(Downstream downstream, String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            CircuitBreaker circuitBreaker = acquire(downstream);
+            Bulkhead bulkhead = bulkheads.get(downstream);
+            AtomicBoolean reported = new AtomicBoolean();
+            long start = System.nanoTime();
+            return downstreamMetrics.record(downstream, operation, call)
+                    .doOnSuccess(unusedVariable -> {
+                        if (circuitBreaker != null && reported.compareAndSet(false, true)) {
+                            circuitBreaker.onSuccess(System.nanoTime() - start);
+                        }
+                    })
+                    .doOnError(failure -> {
+                        if (circuitBreaker != null && reported.compareAndSet(false, true)) {
+                            circuitBreaker.onError(System.nanoTime() - start);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        if (bulkhead != null) {
+                            bulkhead.release();
+                        }
+                        if (circuitBreaker != null && reported.compareAndSet(false, true)) {
+                            circuitBreaker.onCancel(System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+
+    /*
+     * Takes a breaker permission and a bulkhead permit, or fails without calling the downstream.
+     */
+    private CircuitBreaker acquire(Downstream downstream) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(downstream);
+        if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    downstream + " circuit breaker is open");
+        }
+        Bulkhead bulkhead = bulkheads.get(downstream);
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            if (circuitBreaker != null) {
+                circuitBreaker.releasePermission();
+            }
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    downstream + " is at its bulkhead limit of " + bulkhead.getMaxConcurrentCalls() + " calls");
+        }
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,57 @@
+package com.polovyi.ivan.tutorials.client;
+
+import com.polovyi.ivan.tutorials.concurrent.Span;
+import com.polovyi.ivan.tutorials.concurrent.Tracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/*
+ * Times every client call as downstream.call{downstream, operation, outcome}. Percentile histograms are switched on
+ * per meter name in management.metrics.distribution, so they stay off in benchmarks and tests. Blocking calls made
+ * inside a trace also get a span of their own.
+ */
+@Component
+@RequiredArgsConstructor
+public class DownstreamMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public <T> T record(Downstream downstream, String operation, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Optional<Span> span = Tracing.startChild(downstream.name() + " " + operation);
+        String outcome = "error";
+        try (Tracing.Scope scope = span.map(Span::makeCurrent).orElse(() -> {})) {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            span.ifPresent(Span::end);
+            sample.stop(timer(downstream, operation, outcome));
+        }
+    }
+
+    public <T> Mono<T> record(Downstream downstream, String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call
+                    .doOnSuccess(unusedVariable -> sample.stop(timer(downstream, operation, "success")))
+                    .doOnError(failure -> sample.stop(timer(downstream, operation, "error")))
+                    .doOnCancel(() -> sample.stop(timer(downstream, operation, "cancelled")));
+        });
+    }
+
+    private Timer timer(Downstream downstream, String operation, String outcome) {
+        return Timer.builder("downstream.call")
+                .description("Latency of a call to a downstream client, as seen by the caller")
+                .tag("downstream", downstream.name())
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -2,13 +2,18 @@ package com.polovyi.ivan.tutorials.client;
 
 import com.polovyi.ivan.tutorials.configuration.DataLoader;
 import com.polovyi.ivan.tutorials.dto.FinancialInfo;
-import com.polovyi.ivan.tutorials.utils.SleepUtils;
+import com.polovyi.ivan.tutorials.event.CustomerChangedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -17,16 +22,49 @@ public class FinancialClient {
 
     private final DataLoader dataLoader;
 
+    private final LatencySimulator latencySimulator;
+
+    private final DownstreamGuard downstreamGuard;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Cacheable(cacheNames = "financial", key = "#customerId")
     public Set<FinancialInfo> getFinancialInfoByCustomerId(Integer customerId) {
         log.info("Getting financial info by customerId {}", customerId);
-        SleepUtils.loadingSimulator(2);
-        return dataLoader.getFinancialResponses().get(customerId);
+        return downstreamGuard.call(Downstream.FINANCIAL, "get", () -> {
+            latencySimulator.simulate(Downstream.FINANCIAL);
+            return dataLoader.getFinancialResponses().get(customerId);
+        });
 
     }
 
-    public void updateFinancialInfo(Integer customerId, Set<FinancialInfo> response) {
+    public Map<Integer, Set<FinancialInfo>> getFinancialInfoByCustomerIds(Collection<Integer> customerIds) {
+        log.info("Getting financial info for {} customers", customerIds.size());
+        return downstreamGuard.call(Downstream.FINANCIAL, "get-batch", () -> {
+            latencySimulator.simulate(Downstream.FINANCIAL);
+            return customerIds.stream()
+                    .filter(customerId -> dataLoader.getFinancialResponses().get(customerId) != null)
+                    .collect(Collectors.toMap(Function.identity(), dataLoader.getFinancialResponses()::get));
+        });
+    }
+
+    public Set<FinancialInfo> updateFinancialInfo(Integer customerId, Set<FinancialInfo> response) {
         log.info("Updating financial info by customerId {}", customerId);
-        SleepUtils.loadingSimulator(2);
-        dataLoader.getFinancialResponses().put(customerId, response);
+        Set<FinancialInfo> previous = downstreamGuard.call(Downstream.FINANCIAL, "update", () -> {
+            latencySimulator.simulate(Downstream.FINANCIAL);
+            return dataLoader.getFinancialResponses().put(customerId, response);
+        });
+        eventPublisher.publishEvent(new CustomerChangedEvent(customerId, Downstream.FINANCIAL));
+        return previous;
+    }
+
+    public Set<FinancialInfo> deleteFinancialInfo(Integer customerId) {
+        log.info("Deleting financial info by customerId {}", customerId);
+        Set<FinancialInfo> previous = downstreamGuard.call(Downstream.FINANCIAL, "delete", () -> {
+            latencySimulator.simulate(Downstream.FINANCIAL);
+            return dataLoader.getFinancialResponses().remove(customerId);
+        });
+        eventPublisher.publishEvent(new CustomerChangedEvent(customerId, Downstream.FINANCIAL));
+        return previous;
     }
 }
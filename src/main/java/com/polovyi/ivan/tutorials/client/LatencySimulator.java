@@ -0,0 +1,100 @@
+package com.polovyi.ivan.tutorials.client;
+
+import com.polovyi.ivan.tutorials.configuration.SimulationProperties;
+import com.polovyi.ivan.tutorials.configuration.SimulationProperties.Latency;
+import com.polovyi.ivan.tutorials.configuration.SimulationProperties.Percentile;
+import com.polovyi.ivan.tutorials.configuration.SimulationProperties.Profile;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Stands in for the network and the remote service behind each client: samples a latency from the client's
+ * profile and injects slow tails, timeouts and errors at the configured rates.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LatencySimulator {
+
+    private static final double Z_99 = 2.326;
+
+    private final SimulationProperties simulationProperties;
+
+    @SneakyThrows
+    public void simulate(Downstream downstream) {
+        Outcome outcome = sample(downstream);
+        TimeUnit.NANOSECONDS.sleep(outcome.delay().toNanos());
+        if (outcome.failure() != null) {
+            throw outcome.failure();
+        }
+    }
+
+    public Mono<Long> simulateReactive(Downstream downstream) {
+        return Mono.fromSupplier(() -> sample(downstream))
+                .flatMap(outcome -> Mono.delay(outcome.delay())
+                        .flatMap(tick -> outcome.failure() == null ? Mono.just(tick) : Mono.error(outcome.failure())));
+    }
+
+    Outcome sample(Downstream downstream) {
+        Profile profile = simulationProperties.profile(downstream);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < profile.getTimeoutRate()) {
+            log.debug("{} simulating a timeout after {} ms", downstream, profile.getTimeout().toMillis());
+            return new Outcome(profile.getTimeout(),
+                    new SimulatedDownstreamException(downstream + " timed out"));
+        }
+        Duration delay = sampleLatency(profile.getLatency(), random);
+        if (random.nextDouble() < profile.getSlowTailRate()) {
+            delay = Duration.ofNanos((long) (delay.toNanos() * profile.getSlowTailMultiplier()));
+        }
+        log.debug("{} simulating {} ms latency", downstream, delay.toMillis());
+        if (random.nextDouble() < profile.getErrorRate()) {
+            return new Outcome(delay, new SimulatedDownstreamException(downstream + " failed"));
+        }
+        return new Outcome(delay, null);
+    }
+
+    private Duration sampleLatency(Latency latency, ThreadLocalRandom random) {
+        return switch (latency.getDistribution()) {
+            case FIXED -> latency.getFixed();
+            case UNIFORM -> Duration.ofNanos(random.nextLong(latency.getMin().toNanos(),
+                    latency.getMax().toNanos() + 1));
+            case LOG_NORMAL -> logNormal(latency, random);
+            case HISTOGRAM -> histogram(latency.getHistogram(), random.nextDouble() * 100);
+        };
+    }
+
+    private Duration logNormal(Latency latency, ThreadLocalRandom random) {
+        double mu = Math.log(latency.getMedian().toNanos());
+        double sigma = (Math.log(latency.getP99().toNanos()) - mu) / Z_99;
+        return Duration.ofNanos((long) Math.exp(mu + sigma * random.nextGaussian()));
+    }
+
+    private Duration histogram(List<Percentile> histogram, double percentile) {
+        Percentile lower = null;
+        for (Percentile upper : histogram) {
+            if (percentile <= upper.getPercentile()) {
+                if (lower == null) {
+                    return upper.getLatency();
+                }
+                double fraction = (percentile - lower.getPercentile())
+                        / (upper.getPercentile() - lower.getPercentile());
+                long lowerNanos = lower.getLatency().toNanos();
+                return Duration.ofNanos(lowerNanos + (long) (fraction * (upper.getLatency().toNanos() - lowerNanos)));
+            }
+            lower = upper;
+        }
+        return lower == null ? Duration.ZERO : lower.getLatency();
+    }
+
+    record Outcome(Duration delay, RuntimeException failure) {
+    }
+}
@@ -2,12 +2,16 @@ package com.polovyi.ivan.tutorials.client;
 
 import com.polovyi.ivan.tutorials.configuration.DataLoader;
 import com.polovyi.ivan.tutorials.dto.LoyaltyClientResponse;
-import com.polovyi.ivan.tutorials.utils.SleepUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 @Slf4j
 @Service
@@ -16,11 +20,37 @@ public class LoyaltyClient {
 
    private final DataLoader dataLoader;
 
+   private final LatencySimulator latencySimulator;
+
+   private final DownstreamGuard downstreamGuard;
+
+   @Cacheable(cacheNames = "loyalty", key = "#customerId")
    public Optional<LoyaltyClientResponse> getLoyaltyPointsByCustomerId(Integer customerId) {
        log.info("Getting loyalty points by customerId {}", customerId);
-       SleepUtils.loadingSimulator(1);
-       return Optional.ofNullable(new LoyaltyClientResponse(dataLoader.getPoints().get(customerId)));
+       return downstreamGuard.call(Downstream.LOYALTY, "get", () -> {
+           latencySimulator.simulate(Downstream.LOYALTY);
+           return loyaltyPoints(customerId);
+       });
+
+   }
+
+   public Map<Integer, LoyaltyClientResponse> getLoyaltyPointsByCustomerIds(Collection<Integer> customerIds) {
+       log.info("Getting loyalty points for {} customers", customerIds.size());
+       return downstreamGuard.call(Downstream.LOYALTY, "get-batch", () -> {
+           latencySimulator.simulate(Downstream.LOYALTY);
+           Map<Integer, LoyaltyClientResponse> loyaltyPoints = new HashMap<>();
+           customerIds.forEach(customerId -> loyaltyPoints(customerId)
+                   .ifPresent(response -> loyaltyPoints.put(customerId, response)));
+           return loyaltyPoints;
+       });
+   }
 
+   /*
+    * Empty for a customer without a loyalty account, rather than a response with null points.
+    */
+   private Optional<LoyaltyClientResponse> loyaltyPoints(Integer customerId) {
+       OptionalLong points = dataLoader.getPoints().get(customerId);
+       return points.isPresent() ? Optional.of(new LoyaltyClientResponse(points.getAsLong())) : Optional.empty();
    }
 
 }
@@ -2,13 +2,15 @@ package com.polovyi.ivan.tutorials.client;
 
 import com.polovyi.ivan.tutorials.configuration.DataLoader;
 import com.polovyi.ivan.tutorials.dto.PurchaseTransaction;
-import com.polovyi.ivan.tutorials.utils.SleepUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -17,11 +19,27 @@ public class PurchaseTransactionClient {
 
    private final DataLoader dataLoader;
 
+   private final LatencySimulator latencySimulator;
+
+   private final DownstreamGuard downstreamGuard;
+
    public Set<PurchaseTransaction> getPurchaseTransactionsByCustomerId(Integer customerId) {
        log.info("Getting purchase transactions by customerId {}", customerId);
-       SleepUtils.loadingSimulator(3);
-       return dataLoader.getPurchaseTransactionResponses().get(customerId);
+       return downstreamGuard.call(Downstream.PURCHASE_TRANSACTION, "get", () -> {
+           latencySimulator.simulate(Downstream.PURCHASE_TRANSACTION);
+           return dataLoader.getPurchaseTransactionResponses().get(customerId);
+       });
+
+   }
 
+   public Map<Integer, Set<PurchaseTransaction>> getPurchaseTransactionsByCustomerIds(Collection<Integer> customerIds) {
+       log.info("Getting purchase transactions for {} customers", customerIds.size());
+       return downstreamGuard.call(Downstream.PURCHASE_TRANSACTION, "get-batch", () -> {
+           latencySimulator.simulate(Downstream.PURCHASE_TRANSACTION);
+           return customerIds.stream()
+                   .filter(customerId -> dataLoader.getPurchaseTransactionResponses().get(customerId) != null)
+                   .collect(Collectors.toMap(Function.identity(), dataLoader.getPurchaseTransactionResponses()::get));
+       });
    }
 
 }
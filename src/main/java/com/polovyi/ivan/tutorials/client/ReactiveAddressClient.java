@@ -0,0 +1,28 @@
+package com.polovyi.ivan.tutorials.client;
+
+import com.polovyi.ivan.tutorials.configuration.DataLoader;
+import com.polovyi.ivan.tutorials.dto.Address;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveAddressClient {
+
+    private final DataLoader dataLoader;
+
+    private final LatencySimulator latencySimulator;
+
+    private final DownstreamGuard downstreamGuard;
+
+    public Mono<Address> getAddressByCustomerId(Integer customerId) {
+        return downstreamGuard.call(Downstream.ADDRESS, "get", latencySimulator.simulateReactive(Downstream.ADDRESS)
+                        .flatMap(unusedVariable -> Mono.justOrEmpty(dataLoader.getAddressClientResponses().get(customerId))))
+                .doOnSubscribe(subscription -> log.info("Getting address by customerId {}", customerId))
+                .doOnCancel(() -> log.info("Cancelled getting address by customerId {}", customerId));
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.polovyi.ivan.tutorials.client;
+
+import com.polovyi.ivan.tutorials.configuration.DataLoader;
+import com.polovyi.ivan.tutorials.dto.FinancialInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveFinancialClient {
+
+    private final DataLoader dataLoader;
+
+    private final LatencySimulator latencySimulator;
+
+    private final DownstreamGuard downstreamGuard;
+
+    public Flux<FinancialInfo> getFinancialInfoByCustomerId(Integer customerId) {
+        return downstreamGuard.call(Downstream.FINANCIAL, "get",
+                        latencySimulator.simulateReactive(Downstream.FINANCIAL)
+                                .map(unusedVariable -> dataLoader.getFinancialResponses()
+                                        .getOrDefault(customerId, Set.of())))
+                .doOnSubscribe(subscription -> log.info("Getting financial info by customerId {}", customerId))
+                .doOnCancel(() -> log.info("Cancelled getting financial info by customerId {}", customerId))
+                .flatMapMany(Flux::fromIterable);
+    }
+
+}
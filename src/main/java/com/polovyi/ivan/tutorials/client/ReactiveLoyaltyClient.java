@@ -0,0 +1,32 @@
+package com.polovyi.ivan.tutorials.client;
+
+import com.polovyi.ivan.tutorials.configuration.DataLoader;
+import com.polovyi.ivan.tutorials.dto.LoyaltyClientResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.OptionalLong;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveLoyaltyClient {
+
+    private final DataLoader dataLoader;
+
+    private final LatencySimulator latencySimulator;
+
+    private final DownstreamGuard downstreamGuard;
+
+    public Mono<LoyaltyClientResponse> getLoyaltyPointsByCustomerId(Integer customerId) {
+        return downstreamGuard.call(Downstream.LOYALTY, "get", latencySimulator.simulateReactive(Downstream.LOYALTY)
+                        .map(unusedVariable -> dataLoader.getPoints().get(customerId)))
+                .doOnSubscribe(subscription -> log.info("Getting loyalty points by customerId {}", customerId))
+                .doOnCancel(() -> log.info("Cancelled getting loyalty points by customerId {}", customerId))
+                .filter(OptionalLong::isPresent)
+                .map(points -> new LoyaltyClientResponse(points.getAsLong()));
+    }
+
+}
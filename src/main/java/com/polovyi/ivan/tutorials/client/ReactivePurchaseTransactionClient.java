@@ -0,0 +1,34 @@
+package com.polovyi.ivan.tutorials.client;
+
+import com.polovyi.ivan.tutorials.configuration.DataLoader;
+import com.polovyi.ivan.tutorials.dto.PurchaseTransaction;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactivePurchaseTransactionClient {
+
+    private final DataLoader dataLoader;
+
+    private final LatencySimulator latencySimulator;
+
+    private final DownstreamGuard downstreamGuard;
+
+    public Flux<PurchaseTransaction> getPurchaseTransactionsByCustomerId(Integer customerId) {
+        return downstreamGuard.call(Downstream.PURCHASE_TRANSACTION, "get",
+                        latencySimulator.simulateReactive(Downstream.PURCHASE_TRANSACTION)
+                                .map(unusedVariable -> dataLoader.getPurchaseTransactionResponses()
+                                        .getOrDefault(customerId, Set.of())))
+                .doOnSubscribe(subscription -> log.info("Getting purchase transactions by customerId {}", customerId))
+                .doOnCancel(() -> log.info("Cancelled getting purchase transactions by customerId {}", customerId))
+                .flatMapMany(Flux::fromIterable);
+    }
+
+}
@@ -0,0 +1,8 @@
+package com.polovyi.ivan.tutorials.client;
+
+public class SimulatedDownstreamException extends RuntimeException {
+
+    public SimulatedDownstreamException(String message) {
+        super(message);
+    }
+}
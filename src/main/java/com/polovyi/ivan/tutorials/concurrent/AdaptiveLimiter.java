@@ -0,0 +1,181 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+ * Concurrency limit that follows the measured latency instead of a fixed pool size (gradient style). Samples are
+ * averaged over windows of about one round trip, so each adjustment is judged by calls admitted under it. The fastest
+ * recent window stands for the unloaded latency; when a window is slower than tolerance times that, work is queueing
+ * somewhere and the limit shrinks in proportion, otherwise it grows by one. It therefore settles where the latency is
+ * about tolerance times the unloaded one. The baseline is re-measured every so often, in case the downstream itself
+ * got slower for good. A dropped call (failure or timeout) cuts the limit by 10%.
+ * Callers over the limit are refused at once rather than queued, which keeps the latency of the admitted ones bounded.
+ */
+public class AdaptiveLimiter implements MeterBinder {
+
+    private static final long MIN_WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int BASELINE_WINDOWS = 100;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final LongSupplier nanoTime;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile int limit;
+    private double estimatedLimit;
+    private double baselineRtt;
+    private int baselineAge;
+    private long windowStart;
+    private long windowRtt;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this(name, initialLimit, minLimit, maxLimit, tolerance, System::nanoTime);
+    }
+
+    AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, double tolerance,
+            LongSupplier nanoTime) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min-limit <= initial-limit <= max-limit for " + name);
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.nanoTime = nanoTime;
+        this.windowStart = nanoTime.getAsLong();
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    public Optional<Permit> tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return Optional.empty();
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return Optional.of(new Permit(current + 1));
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("concurrency.limit", this, AdaptiveLimiter::getLimit)
+                .tag("name", name)
+                .register(registry);
+        Gauge.builder("concurrency.in.flight", this, AdaptiveLimiter::getInFlight)
+                .tag("name", name)
+                .register(registry);
+        FunctionCounter.builder("concurrency.accepted", accepted, LongAdder::sum)
+                .tag("name", name)
+                .register(registry);
+        FunctionCounter.builder("concurrency.rejected", rejected, LongAdder::sum)
+                .tag("name", name)
+                .register(registry);
+        FunctionCounter.builder("concurrency.dropped", dropped, LongAdder::sum)
+                .tag("name", name)
+                .register(registry);
+    }
+
+    private synchronized void onSample(long rtt, int inFlightAtStart) {
+        windowRtt += rtt;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+        long now = nanoTime.getAsLong();
+        if (now - windowStart < Math.max(MIN_WINDOW, baselineRtt)) {
+            return;
+        }
+        double shortRtt = (double) windowRtt / windowSamples;
+        boolean appLimited = windowMaxInFlight < estimatedLimit / 2;
+        windowStart = now;
+        windowRtt = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        if (baselineRtt == 0 || shortRtt < baselineRtt || ++baselineAge >= BASELINE_WINDOWS) {
+            baselineRtt = shortRtt;
+            baselineAge = 0;
+        }
+        if (appLimited) {
+            /* far from the limit, so the latency says nothing about it */
+            return;
+        }
+        if (shortRtt <= tolerance * baselineRtt) {
+            update(estimatedLimit + 1);
+        } else {
+            update(estimatedLimit * Math.max(0.5, tolerance * baselineRtt / shortRtt));
+        }
+    }
+
+    private synchronized void onDrop() {
+        dropped.increment();
+        update(estimatedLimit * BACKOFF_RATIO);
+    }
+
+    private void update(double newLimit) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public final class Permit {
+
+        private final long startTime = nanoTime.getAsLong();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        public void onSuccess() {
+            if (release()) {
+                onSample(nanoTime.getAsLong() - startTime, inFlightAtStart);
+            }
+        }
+
+        public void onDropped() {
+            if (release()) {
+                onDrop();
+            }
+        }
+
+        public void onIgnore() {
+            release();
+        }
+
+        private boolean release() {
+            if (!released.compareAndSet(false, true)) {
+                return false;
+            }
+            inFlight.decrementAndGet();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/*
+ * Assembles a root value with the results of independent futures without ever blocking the caller:
+ * results are only read once every future has completed.
+ */
+public class AsyncAssembler<T> {
+
+    private final CompletableFuture<Optional<T>> root;
+
+    private final List<Part<T, ?>> parts = new ArrayList<>();
+
+    private AsyncAssembler(CompletableFuture<Optional<T>> root) {
+        this.root = root;
+    }
+
+    public static <T> AsyncAssembler<T> of(CompletableFuture<Optional<T>> root) {
+        return new AsyncAssembler<>(root);
+    }
+
+    public <V> AsyncAssembler<T> with(CompletableFuture<V> future, BiConsumer<T, V> setter) {
+        parts.add(new Part<>(future, setter));
+        return this;
+    }
+
+    public CompletableFuture<Optional<T>> thenCombineAll() {
+        CompletableFuture<Optional<T>> assembled = root;
+        for (Part<T, ?> part : parts) {
+            assembled = part.combine(assembled);
+        }
+        return assembled;
+    }
+
+    public CompletableFuture<Optional<T>> allOf() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[parts.size() + 1];
+        futures[0] = root;
+        for (int i = 0; i < parts.size(); i++) {
+            futures[i + 1] = parts.get(i).future();
+        }
+        return CompletableFuture.allOf(futures)
+                .thenApply(unusedVariable -> root.join()
+                        .map(value -> {
+                            parts.forEach(part -> part.apply(value));
+                            return value;
+                        }));
+    }
+
+    private record Part<T, V>(CompletableFuture<V> future, BiConsumer<T, V> setter) {
+
+        CompletableFuture<Optional<T>> combine(CompletableFuture<Optional<T>> assembled) {
+            return assembled.thenCombine(future, (value, result) -> {
+                value.ifPresent(target -> setter.accept(target, result));
+                return value;
+            });
+        }
+
+        void apply(T target) {
+            setter.accept(target, future.join());
+        }
+    }
+}
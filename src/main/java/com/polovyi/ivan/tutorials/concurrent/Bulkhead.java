@@ -0,0 +1,53 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Fixed cap on concurrent calls to one dependency, whatever thread or pool they come from. A call over the cap is
+ * refused rather than parked, so a slow dependency can tie up at most `maxConcurrentCalls` threads.
+ */
+public class Bulkhead implements MeterBinder {
+
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final Semaphore permits;
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrentCalls) {
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bulkhead.available", permits, Semaphore::availablePermits)
+                .tag("name", name)
+                .register(registry);
+        FunctionCounter.builder("bulkhead.rejected", rejected, LongAdder::sum)
+                .tag("name", name)
+                .register(registry);
+    }
+}
@@ -0,0 +1,197 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Count-based circuit breaker. While CLOSED it keeps the outcome of the last `windowSize` calls; once at least
+ * `minimumCalls` are in and the share of failed or slow ones reaches its threshold it opens, and every call is refused
+ * without touching the dependency for `openDuration`. Then `halfOpenCalls` trial calls are let through: if they are
+ * healthy it closes with an empty window, otherwise it opens again.
+ */
+@Slf4j
+public class CircuitBreaker implements MeterBinder {
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final byte[] window;
+    private final LongAdder notPermitted = new LongAdder();
+    private volatile State state = State.CLOSED;
+    private int position;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+    private long openUntil;
+    private int trialsStarted;
+
+    @Builder
+    private CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+            double slowCallRateThreshold, Duration slowCallDuration, Duration openDuration, int halfOpenCalls) {
+        if (minimumCalls < 1 || minimumCalls > windowSize || halfOpenCalls < 1 || halfOpenCalls > windowSize) {
+            throw new IllegalArgumentException(
+                    "Expected 1 <= minimum-calls, half-open-calls <= window-size for " + name);
+        }
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallDuration == null ? Long.MAX_VALUE : slowCallDuration.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.window = new byte[windowSize];
+    }
+
+    public synchronized boolean tryAcquirePermission() {
+        long now = System.nanoTime();
+        if (state == State.OPEN && now - openUntil >= 0) {
+            openUntil = now;
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN && now - openUntil >= openNanos) {
+            /* the trial calls never reported back, try again */
+            openUntil = now;
+            trialsStarted = 0;
+        }
+        boolean permitted = state == State.CLOSED;
+        if (state == State.HALF_OPEN && trialsStarted < halfOpenCalls) {
+            trialsStarted++;
+            permitted = true;
+        }
+        if (!permitted) {
+            notPermitted.increment();
+        }
+        return permitted;
+    }
+
+    public void onSuccess(long durationNanos) {
+        onResult(durationNanos >= slowCallNanos ? SLOW : 0);
+    }
+
+    public void onError(long durationNanos) {
+        onResult((byte) (FAILED | (durationNanos >= slowCallNanos ? SLOW : 0)));
+    }
+
+    /*
+     * A call cancelled by its caller: past the slow-call duration it counts as slow, sooner it says nothing about the
+     * dependency and only gives its permission back.
+     */
+    public void onCancel(long durationNanos) {
+        if (durationNanos >= slowCallNanos) {
+            onResult(SLOW);
+        } else {
+            releasePermission();
+        }
+    }
+
+    /*
+     * Gives back a permission whose call never reached the dependency, so a HALF_OPEN trial slot is not lost.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && trialsStarted > 0) {
+            trialsStarted--;
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (State each : State.values()) {
+            Gauge.builder("circuit.breaker.state", this, breaker -> breaker.state == each ? 1 : 0)
+                    .description("1 for the state the breaker is in, 0 for the others")
+                    .tag("name", name)
+                    .tag("state", each.name().toLowerCase())
+                    .register(registry);
+        }
+        Gauge.builder("circuit.breaker.failure.rate", this, breaker -> breaker.rate(FAILED))
+                .tag("name", name)
+                .register(registry);
+        Gauge.builder("circuit.breaker.slow.call.rate", this, breaker -> breaker.rate(SLOW))
+                .tag("name", name)
+                .register(registry);
+        FunctionCounter.builder("circuit.breaker.not.permitted", notPermitted, LongAdder::sum)
+                .tag("name", name)
+                .register(registry);
+    }
+
+    private synchronized void onResult(byte outcome) {
+        if (state == State.OPEN) {
+            /* a call admitted before the breaker opened */
+            return;
+        }
+        if (calls == windowSize) {
+            evict(window[position]);
+        } else {
+            calls++;
+        }
+        window[position] = outcome;
+        position = (position + 1) % windowSize;
+        failures += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+        if (state == State.HALF_OPEN && calls < halfOpenCalls) {
+            return;
+        }
+        if (state == State.CLOSED && calls < minimumCalls) {
+            return;
+        }
+        if (rate(FAILED) >= failureRateThreshold || rate(SLOW) >= slowCallRateThreshold) {
+            openUntil = System.nanoTime() + openNanos;
+            transitionTo(State.OPEN);
+        } else if (state == State.HALF_OPEN) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    private synchronized double rate(byte kind) {
+        if (calls == 0) {
+            return 0;
+        }
+        return (double) (kind == FAILED ? failures : slowCalls) / calls;
+    }
+
+    private void evict(byte outcome) {
+        failures -= outcome & FAILED;
+        slowCalls -= (outcome & SLOW) >> 1;
+    }
+
+    private void transitionTo(State next) {
+        if (next == State.OPEN) {
+            log.warn("Circuit breaker {} {} -> {} for {} ms (failure rate {}%, slow call rate {}%)", name, state,
+                    next, Duration.ofNanos(openNanos).toMillis(), Math.round(rate(FAILED) * 100),
+                    Math.round(rate(SLOW) * 100));
+        } else {
+            log.info("Circuit breaker {} {} -> {}", name, state, next);
+        }
+        state = next;
+        position = 0;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+        trialsStarted = 0;
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+}
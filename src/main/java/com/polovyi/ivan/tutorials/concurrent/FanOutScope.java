@@ -0,0 +1,127 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * Minimal structured concurrency in the spirit of StructuredTaskScope.ShutdownOnFailure:
+ * subtasks cannot outlive the scope, and the first failure cancels the siblings. close() interrupts the subtasks that
+ * are still running and waits for them to return; the ones that have not started yet never will.
+ */
+public class FanOutScope implements AutoCloseable {
+
+    private final List<Subtask<?>> subtasks = new CopyOnWriteArrayList<>();
+
+    private volatile Throwable failure;
+
+    public <T> Supplier<T> fork(Executor executor, Callable<T> task) {
+        Subtask<T> subtask = new Subtask<>(task);
+        subtasks.add(subtask);
+        executor.execute(subtask);
+        return subtask::result;
+    }
+
+    public void join() throws InterruptedException {
+        for (Subtask<?> subtask : subtasks) {
+            try {
+                subtask.get();
+            } catch (ExecutionException | CancellationException e) {
+                break;
+            }
+        }
+        if (failure != null) {
+            throw new CompletionException(failure);
+        }
+    }
+
+    @Override
+    public void close() {
+        subtasks.forEach(subtask -> subtask.cancel(true));
+        boolean interrupted = false;
+        for (Subtask<?> subtask : subtasks) {
+            while (true) {
+                try {
+                    subtask.awaitExit();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void failed(Subtask<?> failed, Throwable throwable) {
+        if (failure == null) {
+            failure = throwable;
+            subtasks.stream()
+                    .filter(subtask -> subtask != failed)
+                    .forEach(subtask -> subtask.cancel(true));
+        }
+    }
+
+    private class Subtask<T> extends FutureTask<T> {
+
+        private static final int NEW = 0;
+        private static final int RUNNING = 1;
+        private static final int EXITED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(NEW);
+        private final CountDownLatch exited = new CountDownLatch(1);
+
+        Subtask(Callable<T> callable) {
+            super(callable);
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(NEW, RUNNING)) {
+                return;
+            }
+            try {
+                super.run();
+            } finally {
+                state.set(EXITED);
+                exited.countDown();
+            }
+        }
+
+        /*
+         * Returns once the subtask can no longer run: it has returned, or it was still queued and is now skipped.
+         */
+        void awaitExit() throws InterruptedException {
+            if (state.compareAndSet(NEW, EXITED)) {
+                exited.countDown();
+            }
+            exited.await();
+        }
+
+        @Override
+        protected void setException(Throwable throwable) {
+            failed(this, throwable);
+            super.setException(throwable);
+        }
+
+        T result() {
+            if (!isDone()) {
+                throw new IllegalStateException("Subtask result requested before join()");
+            }
+            try {
+                return get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("Subtask did not complete successfully", e);
+            }
+        }
+    }
+}
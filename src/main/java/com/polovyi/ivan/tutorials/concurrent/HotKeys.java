@@ -0,0 +1,123 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+
+/*
+ * Approximate top-k of an int key stream in fixed memory. Frequencies live in a count-min sketch (DEPTH rows of
+ * `width` counters, a key's estimate is the smallest of its counters, so it can only be overestimated by collisions);
+ * next to it the `capacity` keys with the highest estimates are kept. After 10 x width accesses every counter is
+ * halved, so keys that stop being read fade out and recent traffic decides what is hot.
+ * Recording is lock-free for the counters and for keys already tracked; only a key hot enough to enter the top-k
+ * takes the lock. Concurrent aging can lose a few increments, which an estimate can afford.
+ */
+public class HotKeys {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L,
+            0xD6E8FEB86659FD93L};
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicIntegerArray[] counters = new AtomicIntegerArray[DEPTH];
+    private final int sampleSize;
+    private final Map<Integer, Long> top = new ConcurrentHashMap<>();
+    private final AtomicInteger accesses = new AtomicInteger();
+    private volatile long topFloor;
+
+    public HotKeys(int capacity, int expectedKeys) {
+        this.capacity = capacity;
+        int width = HashCommon.nextPowerOfTwo(Math.max(16, expectedKeys));
+        this.mask = width - 1;
+        for (int row = 0; row < DEPTH; row++) {
+            counters[row] = new AtomicIntegerArray(width);
+        }
+        this.sampleSize = 10 * width;
+    }
+
+    public void record(int key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[row].updateAndGet(index(row, key),
+                    count -> count < Integer.MAX_VALUE ? count + 1 : count));
+        }
+        if (accesses.incrementAndGet() == sampleSize) {
+            age();
+            estimate /= 2;
+        }
+        offer(key, estimate);
+    }
+
+    public long estimate(int key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[row].get(index(row, key)));
+        }
+        return estimate;
+    }
+
+    /*
+     * The tracked keys, hottest first.
+     */
+    public List<Integer> top() {
+        return top.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private void offer(int key, long estimate) {
+        if (top.computeIfPresent(key, (unusedKey, unusedEstimate) -> estimate) != null) {
+            return;
+        }
+        /* counts only grow between agings, so the coldest tracked key is at least topFloor */
+        if (estimate <= topFloor && top.size() >= capacity) {
+            return;
+        }
+        synchronized (top) {
+            if (top.containsKey(key) || top.size() < capacity) {
+                top.put(key, estimate);
+                return;
+            }
+            int coldestKey = key;
+            long coldest = Long.MAX_VALUE;
+            for (Map.Entry<Integer, Long> entry : top.entrySet()) {
+                if (entry.getValue() < coldest) {
+                    coldest = entry.getValue();
+                    coldestKey = entry.getKey();
+                }
+            }
+            topFloor = coldest;
+            if (estimate > coldest) {
+                top.remove(coldestKey);
+                top.put(key, estimate);
+            }
+        }
+    }
+
+    /*
+     * Run by the one thread whose access completed the sample.
+     */
+    private void age() {
+        for (AtomicIntegerArray row : counters) {
+            for (int i = 0; i < row.length(); i++) {
+                row.updateAndGet(i, count -> count >>> 1);
+            }
+        }
+        synchronized (top) {
+            top.replaceAll((unusedKey, estimate) -> estimate / 2);
+            topFloor /= 2;
+        }
+        accesses.set(0);
+    }
+
+    private int index(int row, int key) {
+        return (int) HashCommon.mix(key * SEEDS[row]) & mask;
+    }
+}
@@ -0,0 +1,69 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/*
+ * A CompletableFuture for a blocking task that stops the task once nobody waits for it: completing it from outside
+ * (cancel, orTimeout, complete) interrupts the thread still computing it, and a task that has not started yet is
+ * skipped. Plain CompletableFutures leave the task running, so timed-out or superseded calls keep holding a thread.
+ */
+public class InterruptibleFuture<T> extends CompletableFuture<T> implements Runnable {
+
+    private final Supplier<T> task;
+    private Thread runner;
+    private boolean started;
+
+    public InterruptibleFuture(Supplier<T> task) {
+        this.task = task;
+        whenComplete((value, failure) -> interruptRunner());
+    }
+
+    public static <T> InterruptibleFuture<T> supplyAsync(Supplier<T> task, Executor executor) {
+        InterruptibleFuture<T> future = new InterruptibleFuture<>(task);
+        executor.execute(future);
+        return future;
+    }
+
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (started || isDone()) {
+                return;
+            }
+            started = true;
+            runner = Thread.currentThread();
+        }
+        T value;
+        try {
+            value = task.get();
+        } catch (Throwable failure) {
+            detach();
+            completeExceptionally(failure);
+            return;
+        }
+        detach();
+        complete(value);
+    }
+
+    @Override
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new CompletableFuture<>();
+    }
+
+    /*
+     * Once the task returned its thread goes back to the pool: clears any interrupt that was meant for the task, so it
+     * cannot hit the next task the thread runs.
+     */
+    private synchronized void detach() {
+        runner = null;
+        Thread.interrupted();
+    }
+
+    private synchronized void interruptRunner() {
+        if (runner != null) {
+            runner.interrupt();
+        }
+    }
+}
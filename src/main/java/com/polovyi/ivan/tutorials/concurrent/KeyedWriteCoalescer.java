@@ -0,0 +1,120 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+
+/*
+ * Orders writes per key: a key has at most one write in flight, and everything submitted for it in the meantime
+ * is merged into the next write. Different keys never wait for each other. Each caller's future completes with
+ * the write its value was merged into.
+ */
+public class KeyedWriteCoalescer<K, V> implements MeterBinder {
+
+    private final String name;
+    private final BinaryOperator<V> merge;
+    private final BiFunction<K, V, CompletableFuture<Void>> writer;
+    private final Map<K, Lane<V>> lanes = new ConcurrentHashMap<>();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+
+    public KeyedWriteCoalescer(String name, BinaryOperator<V> merge, BiFunction<K, V, CompletableFuture<Void>> writer) {
+        this.name = name;
+        this.merge = merge;
+        this.writer = writer;
+    }
+
+    public CompletableFuture<Void> submit(K key, V value) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        submitted.increment();
+        Lane<V> lane = lanes.compute(key, (k, current) -> {
+            Lane<V> next = current == null ? new Lane<>() : current;
+            next.pending = next.pending == null ? value : merge.apply(next.pending, value);
+            next.waiters.add(result);
+            return next;
+        });
+        if (lane.claim()) {
+            drain(key);
+        }
+        return result;
+    }
+
+    public int activeKeys() {
+        return lanes.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("coalescer.submitted", submitted, LongAdder::sum)
+                .tag("name", name)
+                .register(registry);
+        FunctionCounter.builder("coalescer.writes", writes, LongAdder::sum)
+                .tag("name", name)
+                .register(registry);
+        Gauge.builder("coalescer.active.keys", lanes, Map::size)
+                .tag("name", name)
+                .register(registry);
+    }
+
+    private void drain(K key) {
+        List<Batch<V>> taken = new ArrayList<>(1);
+        lanes.compute(key, (k, lane) -> {
+            if (lane.pending == null) {
+                return null;
+            }
+            taken.add(new Batch<>(lane.pending, lane.waiters));
+            lane.pending = null;
+            lane.waiters = new ArrayList<>();
+            return lane;
+        });
+        if (taken.isEmpty()) {
+            return;
+        }
+        Batch<V> batch = taken.get(0);
+        writes.increment();
+        CompletableFuture<Void> write;
+        try {
+            write = writer.apply(key, batch.value());
+        } catch (RuntimeException e) {
+            write = CompletableFuture.failedFuture(e);
+        }
+        write.whenComplete((unusedVariable, failure) -> {
+            batch.waiters().forEach(waiter -> {
+                if (failure == null) {
+                    waiter.complete(null);
+                } else {
+                    waiter.completeExceptionally(failure);
+                }
+            });
+            drain(key);
+        });
+    }
+
+    private static class Lane<V> {
+
+        private V pending;
+        private List<CompletableFuture<Void>> waiters = new ArrayList<>();
+        private boolean claimed;
+
+        synchronized boolean claim() {
+            if (claimed) {
+                return false;
+            }
+            claimed = true;
+            return true;
+        }
+    }
+
+    private record Batch<V>(V value, List<CompletableFuture<Void>> waiters) {
+    }
+}
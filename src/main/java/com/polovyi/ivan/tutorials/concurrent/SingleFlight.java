@@ -0,0 +1,64 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter calls;
+
+    private final Counter deduplicated;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.calls = Counter.builder("singleflight.calls")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.deduplicated = Counter.builder("singleflight.deduplicated")
+                .description("Calls that joined an identical call already in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        return execute(key, call, UnaryOperator.identity());
+    }
+
+    /*
+     * Every caller gets its own `copy` of the shared result, so what one caller mutates the others never see.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call, UnaryOperator<V> copy) {
+        calls.increment();
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            deduplicated.increment();
+            return existing.thenApply(copy);
+        }
+        try {
+            call.get().whenComplete((value, failure) -> {
+                inFlight.remove(key, promise);
+                if (failure != null) {
+                    promise.completeExceptionally(failure);
+                } else {
+                    promise.complete(value);
+                }
+            });
+        } catch (Throwable failure) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(failure);
+        }
+        return promise.thenApply(copy);
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
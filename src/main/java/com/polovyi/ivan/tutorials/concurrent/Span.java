@@ -0,0 +1,104 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * One timed unit of work in a trace. The spans of a trace are collected on its root, so when the root ends the whole
+ * request can be logged as a waterfall (see Tracing). A root keeps at most MAX_SPANS and none started after it ended;
+ * the rest are still timed but only counted as dropped.
+ */
+@Getter
+public class Span {
+
+    static final int MAX_SPANS = 256;
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentId;
+    private final String name;
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+    @Getter(AccessLevel.NONE)
+    private final Span root;
+    @Getter(AccessLevel.NONE)
+    private final Queue<Span> spans;
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger started;
+
+    private Span(String traceId, String parentId, String name, Span root) {
+        this.traceId = traceId;
+        this.spanId = randomHex();
+        this.parentId = parentId;
+        this.name = name;
+        this.root = root == null ? this : root;
+        this.spans = root == null ? new ConcurrentLinkedQueue<>() : null;
+        this.started = root == null ? new AtomicInteger() : null;
+        this.root.collect(this);
+    }
+
+    public static Span root(String name) {
+        return new Span(randomHex() + randomHex(), null, name, null);
+    }
+
+    public static Span root(String name, String traceId, String parentId) {
+        return new Span(traceId, parentId, name, null);
+    }
+
+    public Span child(String name) {
+        return new Span(traceId, spanId, name, root);
+    }
+
+    public boolean isRoot() {
+        return root == this;
+    }
+
+    public boolean isEnded() {
+        return endNanos != 0;
+    }
+
+    public long durationNanos() {
+        return (isEnded() ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    public Tracing.Scope makeCurrent() {
+        return Tracing.makeCurrent(this);
+    }
+
+    public void end() {
+        synchronized (this) {
+            if (isEnded()) {
+                return;
+            }
+            endNanos = System.nanoTime();
+        }
+        if (isRoot()) {
+            Tracing.ended(this);
+        }
+    }
+
+    List<Span> spans() {
+        return List.copyOf(root.spans);
+    }
+
+    int droppedSpans() {
+        return root.started.get() - root.spans.size();
+    }
+
+    private void collect(Span span) {
+        if (started.incrementAndGet() <= MAX_SPANS && !isEnded()) {
+            spans.add(span);
+        }
+    }
+
+    private static String randomHex() {
+        return HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextLong());
+    }
+}
@@ -0,0 +1,94 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+
+import java.util.OptionalLong;
+import java.util.concurrent.locks.StampedLock;
+
+/*
+ * int -> long counterpart of StripedIntObjectMap: neither keys nor values are boxed.
+ */
+public class StripedIntLongMap {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    public StripedIntLongMap() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public StripedIntLongMap(int stripes) {
+        int size = HashCommon.nextPowerOfTwo(stripes);
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+    }
+
+    public OptionalLong get(int key) {
+        Stripe stripe = stripe(key);
+        long stamp = stripe.lock.readLock();
+        try {
+            return stripe.map.containsKey(key) ? OptionalLong.of(stripe.map.get(key)) : OptionalLong.empty();
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    public void put(int key, long value) {
+        Stripe stripe = stripe(key);
+        long stamp = stripe.lock.writeLock();
+        try {
+            stripe.map.put(key, value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                size += stripe.map.size();
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                for (Int2LongMap.Entry entry : stripe.map.int2LongEntrySet()) {
+                    consumer.accept(entry.getIntKey(), entry.getLongValue());
+                }
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    private Stripe stripe(int key) {
+        return stripes[HashCommon.mix(key) & mask];
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        void accept(int key, long value);
+    }
+
+    private static class Stripe {
+
+        private final StampedLock lock = new StampedLock();
+        private final Int2LongOpenHashMap map = new Int2LongOpenHashMap();
+    }
+}
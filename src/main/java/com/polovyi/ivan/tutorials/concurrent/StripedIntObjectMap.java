@@ -0,0 +1,110 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.util.concurrent.locks.StampedLock;
+
+/*
+ * int -> V map split into lock stripes, each an open-addressing fastutil map guarded by a StampedLock,
+ * so keys are never boxed and writers only contend with readers of the same stripe.
+ */
+public class StripedIntObjectMap<V> {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Stripe<V>[] stripes;
+    private final int mask;
+
+    public StripedIntObjectMap() {
+        this(DEFAULT_STRIPES);
+    }
+
+    @SuppressWarnings("unchecked")
+    public StripedIntObjectMap(int stripes) {
+        int size = HashCommon.nextPowerOfTwo(stripes);
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe<>();
+        }
+        this.mask = size - 1;
+    }
+
+    public V get(int key) {
+        Stripe<V> stripe = stripe(key);
+        long stamp = stripe.lock.readLock();
+        try {
+            return stripe.map.get(key);
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    public V getOrDefault(int key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public V put(int key, V value) {
+        Stripe<V> stripe = stripe(key);
+        long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.map.put(key, value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    public V remove(int key) {
+        Stripe<V> stripe = stripe(key);
+        long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.map.remove(key);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                size += stripe.map.size();
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    public void forEach(EntryConsumer<V> consumer) {
+        for (Stripe<V> stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                for (Int2ObjectMap.Entry<V> entry : stripe.map.int2ObjectEntrySet()) {
+                    consumer.accept(entry.getIntKey(), entry.getValue());
+                }
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    private Stripe<V> stripe(int key) {
+        return stripes[HashCommon.mix(key) & mask];
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        void accept(int key, V value);
+    }
+
+    private static class Stripe<V> {
+
+        private final StampedLock lock = new StampedLock();
+        private final Int2ObjectOpenHashMap<V> map = new Int2ObjectOpenHashMap<>();
+    }
+}
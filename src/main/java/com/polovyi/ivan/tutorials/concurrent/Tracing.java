@@ -0,0 +1,128 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+ * Thread-bound current span, mirrored into the MDC as traceId/spanId. Work handed to another thread keeps the span
+ * only if it goes through a propagating executor: the span current at execute() is restored around the task, so
+ * supplyAsync stages and the thenCombine/allOf continuations they complete run in the submitting request's trace.
+ */
+@Slf4j
+public class Tracing {
+
+    public static final String TRACE_ID = "traceId";
+    public static final String SPAN_ID = "spanId";
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private static final int WATERFALL_WIDTH = 40;
+
+    public static Optional<Span> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /*
+     * A child of the current span, or empty outside a trace.
+     */
+    public static Optional<Span> startChild(String name) {
+        return current().map(span -> span.child(name));
+    }
+
+    public static Executor propagating(Executor executor) {
+        return command -> {
+            Span captured = CURRENT.get();
+            if (captured == null) {
+                executor.execute(command);
+                return;
+            }
+            executor.execute(() -> {
+                try (Scope scope = makeCurrent(captured)) {
+                    command.run();
+                }
+            });
+        };
+    }
+
+    static Scope makeCurrent(Span span) {
+        Span previous = CURRENT.get();
+        bind(span);
+        return () -> bind(previous);
+    }
+
+    static void ended(Span root) {
+        if (log.isDebugEnabled()) {
+            log.debug("{}", waterfall(root));
+        }
+    }
+
+    /*
+     * One line per span, indented under its parent and drawn on the root's time axis. Starting from the root, the
+     * longest child at each level is marked with * as the critical path.
+     */
+    static String waterfall(Span root) {
+        Map<String, List<Span>> children = root.spans().stream()
+                .filter(span -> span.getParentId() != null)
+                .collect(Collectors.groupingBy(Span::getParentId));
+        Set<Span> criticalPath = new HashSet<>();
+        for (Span span = root; span != null; span = children.getOrDefault(span.getSpanId(), List.of()).stream()
+                .max(Comparator.comparingLong(Span::durationNanos))
+                .orElse(null)) {
+            criticalPath.add(span);
+        }
+        criticalPath.remove(root);
+        StringBuilder waterfall = new StringBuilder(String.format("Trace %s %s took %d ms", root.getTraceId(),
+                root.getName(), TimeUnit.NANOSECONDS.toMillis(root.durationNanos())));
+        int dropped = root.droppedSpans();
+        if (dropped > 0) {
+            waterfall.append(String.format(", %d spans not shown", dropped));
+        }
+        append(waterfall, root, 0, root, children, criticalPath);
+        return waterfall.toString();
+    }
+
+    private static void append(StringBuilder waterfall, Span span, int depth, Span root,
+            Map<String, List<Span>> children, Set<Span> criticalPath) {
+        long total = Math.max(root.durationNanos(), 1);
+        long offset = span.getStartNanos() - root.getStartNanos();
+        int from = (int) Math.min(WATERFALL_WIDTH - 1, offset * WATERFALL_WIDTH / total);
+        int length = (int) Math.max(1, Math.min(WATERFALL_WIDTH - from,
+                span.durationNanos() * WATERFALL_WIDTH / total));
+        waterfall.append(String.format("%n  %-44s |%s%s%s| %6d ms +%6d ms%s",
+                "  ".repeat(depth) + span.getName(),
+                " ".repeat(from), "#".repeat(length), " ".repeat(WATERFALL_WIDTH - from - length),
+                TimeUnit.NANOSECONDS.toMillis(offset), TimeUnit.NANOSECONDS.toMillis(span.durationNanos()),
+                !span.isEnded() ? " (unfinished)" : criticalPath.contains(span) ? " *" : ""));
+        children.getOrDefault(span.getSpanId(), List.of()).stream()
+                .sorted(Comparator.comparingLong(Span::getStartNanos))
+                .forEach(child -> append(waterfall, child, depth + 1, root, children, criticalPath));
+    }
+
+    private static void bind(Span span) {
+        if (span == null) {
+            CURRENT.remove();
+            MDC.remove(TRACE_ID);
+            MDC.remove(SPAN_ID);
+        } else {
+            CURRENT.set(span);
+            MDC.put(TRACE_ID, span.getTraceId());
+            MDC.put(SPAN_ID, span.getSpanId());
+        }
+    }
+
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,222 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/*
+ * Runs a fan-out of writes as a small dependency graph: a step starts once the steps it depends on have
+ * succeeded, independent steps run in parallel, failed attempts are retried with exponential backoff and,
+ * if any step still fails, the steps that did succeed are compensated in reverse completion order.
+ */
+@Slf4j
+public class WriteOrchestration {
+
+    private final String name;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Step<?>> steps = new LinkedHashMap<>();
+
+    public WriteOrchestration(String name, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public WriteOrchestration step(Step<?> step) {
+        step.getDependsOn().stream()
+                .filter(dependency -> !steps.containsKey(dependency))
+                .findAny()
+                .ifPresent(dependency -> {
+                    throw new IllegalArgumentException(
+                            "Step " + step.getName() + " depends on undeclared step " + dependency);
+                });
+        if (steps.putIfAbsent(step.getName(), step) != null) {
+            throw new IllegalArgumentException("Step " + step.getName() + " is already declared");
+        }
+        return this;
+    }
+
+    public CompletableFuture<Report> run() {
+        long startTime = System.nanoTime();
+        Execution execution = new Execution();
+        Map<String, CompletableFuture<Object>> results = new LinkedHashMap<>();
+        steps.values().forEach(step -> {
+            CompletableFuture<?>[] dependencies = step.getDependsOn().stream()
+                    .map(results::get)
+                    .toArray(CompletableFuture[]::new);
+            results.put(step.getName(), CompletableFuture.allOf(dependencies)
+                    .thenCompose(unusedVariable -> execution.attempt(step, 1, System.nanoTime())));
+        });
+        return CompletableFuture.allOf(results.values().toArray(new CompletableFuture[0]))
+                .handle((unusedVariable, failure) -> failure)
+                .thenCompose(failure -> failure == null
+                        ? CompletableFuture.completedFuture(null)
+                        : execution.compensate())
+                .thenApply(unusedVariable -> {
+                    Report report = execution.report(Duration.ofNanos(System.nanoTime() - startTime));
+                    log.info("{}", report);
+                    Throwable failure = execution.firstFailure.get();
+                    if (failure != null) {
+                        throw new CompletionException(failure);
+                    }
+                    return report;
+                });
+    }
+
+    private class Execution {
+
+        private final Map<String, StepReport> stepReports = new ConcurrentHashMap<>();
+        private final Deque<Completed<?>> completed = new ConcurrentLinkedDeque<>();
+        private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+        <T> CompletableFuture<Object> attempt(Step<T> step, int attempt, long startTime) {
+            return CompletableFuture.supplyAsync(step.getAction(), step.getExecutor())
+                    .handle((value, failure) -> {
+                        if (failure == null) {
+                            record(step, Status.SUCCEEDED, attempt, startTime);
+                            completed.push(new Completed<>(step, value));
+                            return CompletableFuture.<Object>completedFuture(value);
+                        }
+                        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                        if (attempt < step.getMaxAttempts() && step.getRetryOn().test(cause)) {
+                            long backoff = step.getBackoff().toMillis() << (attempt - 1);
+                            log.warn("{}/{} attempt {} failed, retrying in {} ms", name, step.getName(), attempt,
+                                    backoff, cause);
+                            Executor delayed = Tracing.propagating(CompletableFuture.delayedExecutor(backoff,
+                                    TimeUnit.MILLISECONDS, step.getExecutor()));
+                            return CompletableFuture.supplyAsync(() -> attempt(step, attempt + 1, startTime), delayed)
+                                    .thenCompose(next -> next);
+                        }
+                        log.warn("{}/{} failed after {} attempt(s)", name, step.getName(), attempt, cause);
+                        firstFailure.compareAndSet(null, cause);
+                        record(step, Status.FAILED, attempt, startTime);
+                        return CompletableFuture.failedFuture(cause);
+                    })
+                    .thenCompose(result -> result);
+        }
+
+        CompletableFuture<Void> compensate() {
+            CompletableFuture<Void> compensation = CompletableFuture.completedFuture(null);
+            for (Completed<?> step : completed) {
+                compensation = compensation.thenCompose(unusedVariable -> step.compensate());
+            }
+            return compensation;
+        }
+
+        void record(Step<?> step, Status status, int attempts, long startTime) {
+            Duration duration = Duration.ofNanos(System.nanoTime() - startTime);
+            stepReports.put(step.getName(), new StepReport(step.getName(), status, attempts, duration.toMillis()));
+            meterRegistry.timer("write.step", "orchestration", name, "step", step.getName(),
+                    "status", status.name()).record(duration);
+        }
+
+        Report report(Duration duration) {
+            List<StepReport> reports = new ArrayList<>();
+            steps.keySet().forEach(step -> reports.add(stepReports.getOrDefault(step,
+                    new StepReport(step, Status.SKIPPED, 0, 0))));
+            return new Report(name, firstFailure.get() == null, duration.toMillis(), reports);
+        }
+
+        private class Completed<T> {
+
+            private final Step<T> step;
+            private final T value;
+
+            Completed(Step<T> step, T value) {
+                this.step = step;
+                this.value = value;
+            }
+
+            CompletableFuture<Void> compensate() {
+                if (step.getCompensation() == null) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                long startTime = System.nanoTime();
+                StepReport succeeded = stepReports.get(step.getName());
+                return CompletableFuture.runAsync(() -> step.getCompensation().accept(value), step.getExecutor())
+                        .handle((unusedVariable, failure) -> {
+                            if (failure != null) {
+                                log.error("{}/{} compensation failed, manual repair needed", name, step.getName(),
+                                        failure);
+                            }
+                            record(step, failure == null ? Status.COMPENSATED : Status.COMPENSATION_FAILED,
+                                    succeeded.attempts(), startTime);
+                            return null;
+                        });
+            }
+        }
+    }
+
+    @Getter
+    @Builder
+    public static class Step<T> {
+
+        @NonNull
+        private final String name;
+
+        @NonNull
+        private final Executor executor;
+
+        @NonNull
+        private final Supplier<T> action;
+
+        private final Consumer<T> compensation;
+
+        @Singular("dependsOn")
+        private final Set<String> dependsOn;
+
+        @Builder.Default
+        private final int maxAttempts = 1;
+
+        @Builder.Default
+        private final Duration backoff = Duration.ofMillis(100);
+
+        @Builder.Default
+        private final Predicate<Throwable> retryOn = failure -> true;
+
+    }
+
+    public enum Status {
+        SUCCEEDED,
+        FAILED,
+        SKIPPED,
+        COMPENSATED,
+        COMPENSATION_FAILED
+    }
+
+    public record StepReport(String step, Status status, int attempts, long durationMillis) {
+    }
+
+    public record Report(String orchestration, boolean succeeded, long durationMillis, List<StepReport> steps) {
+
+        @Override
+        public String toString() {
+            return orchestration + (succeeded ? " succeeded" : " failed") + " in " + durationMillis + " ms: "
+                    + steps.stream()
+                    .map(step -> step.step() + "=" + step.status() + "(" + step.attempts() + "x, "
+                            + step.durationMillis() + " ms)")
+                    .collect(Collectors.joining(", "));
+        }
+    }
+}
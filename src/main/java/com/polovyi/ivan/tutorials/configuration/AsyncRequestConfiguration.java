@@ -0,0 +1,33 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/*
+ * Callables and StreamingResponseBody run on this pool, sized by spring.task.execution. Without it MVC may fall back
+ * to SimpleAsyncTaskExecutor, which starts a new thread for every async request.
+ */
+@Configuration
+public class AsyncRequestConfiguration implements WebMvcConfigurer, DisposableBean {
+
+    private final ThreadPoolTaskExecutor asyncRequestExecutor;
+
+    public AsyncRequestConfiguration(TaskExecutorBuilder taskExecutorBuilder) {
+        this.asyncRequestExecutor = taskExecutorBuilder.threadNamePrefix("mvc-async-").build();
+        this.asyncRequestExecutor.initialize();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(asyncRequestExecutor);
+    }
+
+    @Override
+    public void destroy() {
+        asyncRequestExecutor.shutdown();
+    }
+}
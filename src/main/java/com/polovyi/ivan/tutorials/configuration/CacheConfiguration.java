@@ -0,0 +1,48 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.polovyi.ivan.tutorials.client.Downstream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.CompositeCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Slf4j
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    @Bean
+    public CacheManager cacheManager(DownstreamProperties downstreamProperties) {
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager() {
+
+            @Override
+            protected Cache adaptCaffeineCache(String name,
+                    com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new VersionedCaffeineCache(name, cache, isAllowNullValues());
+            }
+        };
+        caffeineCacheManager.setCacheNames(List.of());
+        for (Downstream downstream : Downstream.values()) {
+            DownstreamProperties.Cache cache = downstreamProperties.client(downstream).getCache();
+            if (cache.isEnabled()) {
+                log.info("Caching {} responses for {} with at most {} entries", downstream.key(), cache.getTtl(),
+                        cache.getMaximumSize());
+                caffeineCacheManager.registerCustomCache(downstream.key(), Caffeine.newBuilder()
+                        .expireAfterWrite(cache.getTtl())
+                        .maximumSize(cache.getMaximumSize())
+                        .recordStats()
+                        .build());
+            }
+        }
+        CompositeCacheManager cacheManager = new CompositeCacheManager(caffeineCacheManager);
+        cacheManager.setFallbackToNoOpCache(true);
+        return cacheManager;
+    }
+}
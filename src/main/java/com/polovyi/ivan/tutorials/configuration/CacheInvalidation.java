@@ -0,0 +1,29 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.polovyi.ivan.tutorials.event.CustomerChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/*
+ * Evicts the changed section from its client cache. It runs before any other listener, so whoever rebuilds the
+ * customer on the same event reads the new value rather than the cached one.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidation {
+
+    private final CacheManager cacheManager;
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void evict(CustomerChangedEvent event) {
+        Optional.ofNullable(cacheManager.getCache(event.section().key()))
+                .ifPresent(cache -> cache.evict(event.customerId()));
+    }
+}
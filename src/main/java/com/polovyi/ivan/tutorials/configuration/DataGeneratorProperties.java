@@ -0,0 +1,46 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@Data
+@ConfigurationProperties(prefix = "data-generator")
+public class DataGeneratorProperties {
+
+    private int customers = 9;
+
+    private Long seed;
+
+    /* creation dates and loyalty rates count back from this date, so a seed gives the same data on any day */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate referenceDate = LocalDate.of(2024, 1, 1);
+
+    private int batchSize = 1_000;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private boolean downstreamData = true;
+
+    private PurchaseTransactions purchaseTransactions = new PurchaseTransactions();
+
+    @Data
+    public static class PurchaseTransactions {
+
+        private Distribution distribution = Distribution.UNIFORM;
+
+        private int min = 1;
+
+        private int max = 10;
+
+        private double mean = 3;
+
+    }
+
+    public enum Distribution {
+        UNIFORM,
+        EXPONENTIAL
+    }
+}
@@ -1,71 +1,194 @@
 package com.polovyi.ivan.tutorials.configuration;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.github.javafaker.CreditCardType;
 import com.github.javafaker.Faker;
+import com.polovyi.ivan.tutorials.concurrent.StripedIntLongMap;
+import com.polovyi.ivan.tutorials.concurrent.StripedIntObjectMap;
 import com.polovyi.ivan.tutorials.dto.Address;
 import com.polovyi.ivan.tutorials.dto.FinancialInfo;
 import com.polovyi.ivan.tutorials.dto.PurchaseTransaction;
 import com.polovyi.ivan.tutorials.entity.CustomerEntity;
 import com.polovyi.ivan.tutorials.repository.CustomerRepository;
-import lombok.Data;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.Period;
 import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
-import static java.util.stream.Collectors.toList;
-
-@Data
+@Slf4j
+@Getter
 @Component
 @RequiredArgsConstructor
-public class DataLoader {
+public class DataLoader implements DisposableBean {
+
+    private static final String INSERT_CUSTOMER =
+            "insert into customer (id, full_name, phone_number, created_at) values (?, ?, ?, ?)";
+    private static final CreditCardType[] CREDIT_CARD_TYPES = CreditCardType.values();
 
     private final CustomerRepository customerRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataGeneratorProperties dataGeneratorProperties;
+    private final DataStoreProperties dataStoreProperties;
+    private final ObjectMapper objectMapper;
 
-    private Map<Integer, Set<PurchaseTransaction>> purchaseTransactionResponses = new HashMap<>();
-    private Map<Integer, Address> addressClientResponses = new HashMap<>();
-    private Map<Integer, Set<FinancialInfo>> financialResponses = new HashMap<>();
-    private Map<Integer, Long> points = new HashMap<>();
+    private final StripedIntObjectMap<Set<PurchaseTransaction>> purchaseTransactionResponses = new StripedIntObjectMap<>();
+    private final StripedIntObjectMap<Address> addressClientResponses = new StripedIntObjectMap<>();
+    private final StripedIntObjectMap<Set<FinancialInfo>> financialResponses = new StripedIntObjectMap<>();
+    private final StripedIntLongMap points = new StripedIntLongMap();
 
     @Bean
     private InitializingBean sendDatabase() {
-        Faker faker = new Faker();
         return () -> {
-            customerRepository.saveAll(generateCustomerList(faker));
+            Path snapshotFile = dataStoreProperties.getSnapshotFile();
+            boolean restored = snapshotFile != null && Files.exists(snapshotFile);
+            if (restored) {
+                restore(snapshotFile);
+            }
+            generate(dataGeneratorProperties.isDownstreamData() && !restored);
         };
     }
 
-    List<CustomerEntity> generateCustomerList(Faker faker) {
-        return IntStream.range(1, 10)
-                .mapToObj(i -> {
-                    CustomerEntity customer = createCustomer(i,faker);
-                    Set<PurchaseTransaction> purchaseTransactionList = generatePurchaseTransactionList(
-                            faker);
-                    purchaseTransactionResponses.put(customer.getId(), purchaseTransactionList);
-                    addressClientResponses.put(customer.getId(), createAddress(faker));
-                    financialResponses.put(customer.getId(), generateFinancialInfo(faker));
-                    generatePoints(customer, purchaseTransactionList);
-                    return customer;
-                })
-                .collect(toList());
+    @Override
+    public void destroy() throws IOException {
+        if (dataStoreProperties.getSnapshotFile() != null) {
+            snapshot(dataStoreProperties.getSnapshotFile());
+        }
+    }
+
+    public void snapshot(Path file) throws IOException {
+        IntSet customerIds = new IntOpenHashSet();
+        purchaseTransactionResponses.forEach((customerId, value) -> customerIds.add(customerId));
+        addressClientResponses.forEach((customerId, value) -> customerIds.add(customerId));
+        financialResponses.forEach((customerId, value) -> customerIds.add(customerId));
+        points.forEach((customerId, value) -> customerIds.add(customerId));
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        /* written next to the snapshot and moved over it, so a crash mid-write leaves the previous one intact */
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (SequenceWriter writer = objectMapper.writerFor(CustomerData.class)
+                    .withRootValueSeparator("\n")
+                    .writeValues(new GZIPOutputStream(Files.newOutputStream(temporary)))) {
+                for (IntIterator iterator = customerIds.iterator(); iterator.hasNext(); ) {
+                    int customerId = iterator.nextInt();
+                    OptionalLong customerPoints = points.get(customerId);
+                    writer.write(new CustomerData(customerId, addressClientResponses.get(customerId),
+                            financialResponses.get(customerId), purchaseTransactionResponses.get(customerId),
+                            customerPoints.isPresent() ? customerPoints.getAsLong() : null));
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        log.info("Saved downstream data of {} customers to {}", customerIds.size(), file);
+    }
+
+    public void restore(Path file) throws IOException {
+        int restored = 0;
+        try (MappingIterator<CustomerData> iterator = objectMapper.readerFor(CustomerData.class)
+                .readValues(new GZIPInputStream(Files.newInputStream(file)))) {
+            while (iterator.hasNext()) {
+                CustomerData customerData = iterator.next();
+                int customerId = customerData.customerId();
+                putIfPresent(addressClientResponses, customerId, customerData.address());
+                putIfPresent(financialResponses, customerId, customerData.financialInfo());
+                putIfPresent(purchaseTransactionResponses, customerId, customerData.purchaseTransactions());
+                if (customerData.points() != null) {
+                    points.put(customerId, customerData.points());
+                }
+                restored++;
+            }
+        }
+        log.info("Restored downstream data of {} customers from {}", restored, file);
+    }
+
+    private <V> void putIfPresent(StripedIntObjectMap<V> store, int customerId, V value) {
+        if (value != null) {
+            store.put(customerId, value);
+        }
+    }
+
+    void generate(boolean withDownstreamData) {
+        int customers = dataGeneratorProperties.getCustomers();
+        int batchSize = dataGeneratorProperties.getBatchSize();
+        long seed = Optional.ofNullable(dataGeneratorProperties.getSeed()).orElseGet(System::nanoTime);
+        log.info("Generating {} customers with seed {}", customers, seed);
+        long startTime = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(dataGeneratorProperties.getParallelism(),
+                new CustomizableThreadFactory("data-generator-"));
+        ThreadLocal<SeededFaker> fakers = ThreadLocal.withInitial(SeededFaker::new);
+        try {
+            CompletableFuture.allOf(IntStream.range(0, (customers + batchSize - 1) / batchSize)
+                            .mapToObj(batch -> CompletableFuture.runAsync(() -> generateBatch(fakers.get(), seed,
+                                    batch * batchSize + 1, Math.min(customers, (batch + 1) * batchSize),
+                                    withDownstreamData), executor))
+                            .toArray(CompletableFuture[]::new))
+                    .join();
+        } finally {
+            executor.shutdown();
+        }
+        log.info("Generated {} customers in {} ms", customerRepository.count(),
+                Duration.ofNanos(System.nanoTime() - startTime).toMillis());
+    }
+
+    private void generateBatch(SeededFaker seededFaker, long seed, int firstCustomerId, int lastCustomerId,
+            boolean withDownstreamData) {
+        List<Object[]> rows = new ArrayList<>(lastCustomerId - firstCustomerId + 1);
+        for (int customerId = firstCustomerId; customerId <= lastCustomerId; customerId++) {
+            Random random = seededFaker.reseed(seed, customerId);
+            Faker faker = seededFaker.faker();
+            CustomerEntity customer = createCustomer(customerId, faker, random);
+            rows.add(new Object[]{customer.getId(), customer.getFullName(), customer.getPhoneNumber(),
+                    customer.getCreatedAt()});
+            if (withDownstreamData) {
+                Set<PurchaseTransaction> purchaseTransactionList = generatePurchaseTransactionList(faker, random);
+                purchaseTransactionResponses.put(customerId, purchaseTransactionList);
+                addressClientResponses.put(customerId, createAddress(faker, random));
+                financialResponses.put(customerId, generateFinancialInfo(faker, random));
+                generatePoints(customer, purchaseTransactionList);
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_CUSTOMER, rows);
     }
 
-    private Address createAddress(Faker faker) {
+    private Address createAddress(Faker faker, Random random) {
         return Address.builder()
-                .id(UUID.randomUUID().toString())
+                .id(uuid(random))
                 .street(faker.address().streetName())
                 .streetNumber(faker.address().streetAddressNumber())
                 .city(faker.address().city())
@@ -75,49 +198,87 @@ public class DataLoader {
                 .build();
     }
 
-    private CustomerEntity createCustomer(int customerId, Faker faker) {
+    private CustomerEntity createCustomer(int customerId, Faker faker, Random random) {
         return CustomerEntity.builder()
                 .id(customerId)
                 .createdAt(
-                        LocalDate.now().minus(Period.ofDays((new Random().nextInt(365 * 10)))))
+                        dataGeneratorProperties.getReferenceDate().minus(Period.ofDays((random.nextInt(365 * 10)))))
                 .fullName(faker.name().fullName())
                 .phoneNumber(faker.phoneNumber().cellPhone())
                 .build();
     }
 
-    private Set<PurchaseTransaction> generatePurchaseTransactionList(Faker faker) {
-        return IntStream.range(0, new Random().nextInt(10-1+1)+1)
+    private Set<PurchaseTransaction> generatePurchaseTransactionList(Faker faker, Random random) {
+        return IntStream.range(0, purchaseTransactionCount(random))
                 .mapToObj(i -> PurchaseTransaction.builder()
-                        .id(UUID.randomUUID().toString())
-                        .createdAt(
-                                LocalDate.now().minus(Period.ofDays((new Random().nextInt(365 * 10)))))
+                        .id(uuid(random))
+                        .createdAt(dataGeneratorProperties.getReferenceDate()
+                                .minus(Period.ofDays((random.nextInt(365 * 10)))))
                         .amount(new BigDecimal(faker.commerce().price().replaceAll(",", ".")))
-                        .paymentType(List.of(CreditCardType.values())
-                                .get(new Random().nextInt(CreditCardType.values().length)).toString())
+                        .paymentType(CREDIT_CARD_TYPES[random.nextInt(CREDIT_CARD_TYPES.length)].toString())
                         .build())
                 .collect(Collectors.toSet());
     }
 
-    private Set<FinancialInfo> generateFinancialInfo(Faker faker) {
-        int endExclusive = new Random().nextInt(4 - 1 + 1) + 1;
+    private int purchaseTransactionCount(Random random) {
+        DataGeneratorProperties.PurchaseTransactions purchaseTransactions = dataGeneratorProperties.getPurchaseTransactions();
+        int min = purchaseTransactions.getMin();
+        int max = purchaseTransactions.getMax();
+        int count = switch (purchaseTransactions.getDistribution()) {
+            case UNIFORM -> min + random.nextInt(max - min + 1);
+            case EXPONENTIAL -> min + (int) (-Math.log(1 - random.nextDouble()) * (purchaseTransactions.getMean() - min));
+        };
+        /* a mean below min would otherwise draw counts under it */
+        return Math.max(min, Math.min(count, max));
+    }
+
+    private Set<FinancialInfo> generateFinancialInfo(Faker faker, Random random) {
+        int endExclusive = random.nextInt(4 - 1 + 1) + 1;
         return IntStream.range(0, endExclusive)
                 .mapToObj(i -> FinancialInfo.builder()
-                        .id(UUID.randomUUID().toString())
+                        .id(uuid(random))
                         .creditCardNumber(faker.finance().creditCard())
                         .iban(faker.finance().iban())
                         .build())
                 .collect(Collectors.toSet());
     }
 
+    private String uuid(Random random) {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
     private void generatePoints(CustomerEntity customer,
             Set<PurchaseTransaction> purchaseTransactionList) {
-        Long rate = Math.abs(ChronoUnit.YEARS.between(LocalDate.now(), customer.getCreatedAt()));
+        Long rate = Math.abs(ChronoUnit.YEARS.between(dataGeneratorProperties.getReferenceDate(),
+                customer.getCreatedAt()));
         Long points = purchaseTransactionList.stream()
                 .map(PurchaseTransaction::getAmount)
                 .reduce(BigDecimal.ZERO, BigDecimal::add)
                 .multiply(BigDecimal.valueOf(rate == 0 ? 1 : rate)).longValue();
         this.points.put(customer.getId(), points);
     }
+
+    /*
+     * One Faker per generator thread, reseeded per customer so the data does not depend on thread scheduling.
+     */
+    private static class SeededFaker {
+
+        private final Random random = new Random();
+        private final Faker faker = new Faker(random);
+
+        Random reseed(long seed, int customerId) {
+            random.setSeed(HashCommon.mix(seed + customerId));
+            return random;
+        }
+
+        Faker faker() {
+            return faker;
+        }
+    }
+
+    record CustomerData(int customerId, Address address, Set<FinancialInfo> financialInfo,
+            Set<PurchaseTransaction> purchaseTransactions, Long points) {
+    }
 }
 
 
@@ -0,0 +1,14 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+@Data
+@ConfigurationProperties(prefix = "data-store")
+public class DataStoreProperties {
+
+    private Path snapshotFile;
+
+}
@@ -0,0 +1,137 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.concurrent.Tracing;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties.ExecutionMode;
+import com.polovyi.ivan.tutorials.utils.VirtualThreads;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Component
+public class DownstreamExecutors implements DisposableBean {
+
+    @Getter
+    private final ExecutionMode executionMode;
+
+    private final Map<Downstream, Executor> executors = new EnumMap<>(Downstream.class);
+
+    private final List<ExecutorService> ownedExecutors = new ArrayList<>();
+
+    public DownstreamExecutors(DownstreamProperties downstreamProperties, MeterRegistry meterRegistry) {
+        this.executionMode = downstreamProperties.getExecutionMode();
+        log.info("Running downstream calls in {} mode", executionMode);
+        if (executionMode == ExecutionMode.COMMON_POOL) {
+            new ExecutorServiceMetrics(ForkJoinPool.commonPool(), "common-pool", Tags.empty()).bindTo(meterRegistry);
+        }
+        for (Downstream downstream : Downstream.values()) {
+            String name = downstream.key();
+            Executor executor = switch (executionMode) {
+                case COMMON_POOL -> ForkJoinPool.commonPool();
+                case VIRTUAL_THREADS -> countingActive(name, VirtualThreads.threadPerTaskExecutor(name + "-vt-"),
+                        meterRegistry);
+                case PLATFORM_POOLS -> platformPool(name, downstreamProperties.client(downstream).getPool(),
+                        meterRegistry);
+            };
+            executors.put(downstream, Tracing.propagating(executor));
+        }
+    }
+
+    public Executor get(Downstream downstream) {
+        return executors.get(downstream);
+    }
+
+    public boolean isVirtual() {
+        return executionMode == ExecutionMode.VIRTUAL_THREADS;
+    }
+
+    @Override
+    public void destroy() {
+        ownedExecutors.forEach(ExecutorService::shutdown);
+    }
+
+    private ExecutorService platformPool(String name, DownstreamProperties.Pool pool, MeterRegistry meterRegistry) {
+        Counter rejected = Counter.builder("executor.rejected")
+                .description("Tasks rejected because the pool and its queue were saturated")
+                .tag("name", name)
+                .register(meterRegistry);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                pool.getCoreSize(),
+                pool.getMaxSize(),
+                pool.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(pool.getQueueCapacity()),
+                new CustomizableThreadFactory(name + "-"),
+                countingRejections(rejectionHandler(name, pool.getRejectionPolicy()), rejected, name));
+        log.info("Created {} executor with core {}, max {}, queue {} and {} policy", name,
+                pool.getCoreSize(), pool.getMaxSize(), pool.getQueueCapacity(), pool.getRejectionPolicy());
+        ExecutorService monitored = ExecutorServiceMetrics.monitor(meterRegistry, executor, name, Tags.empty());
+        ownedExecutors.add(monitored);
+        return monitored;
+    }
+
+    /*
+     * Virtual threads have no pool or queue to inspect, so the only gauge is the number of tasks still running.
+     */
+    private static Executor countingActive(String name, Executor executor, MeterRegistry meterRegistry) {
+        AtomicInteger active = meterRegistry.gauge("executor.active", Tags.of("name", name), new AtomicInteger());
+        return command -> {
+            active.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        command.run();
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                });
+            } catch (RuntimeException e) {
+                active.decrementAndGet();
+                throw e;
+            }
+        };
+    }
+
+    /*
+     * ABORT fails the call with 503, so a saturated pool never runs a blocking downstream call on the request thread.
+     * CALLER_RUNS does exactly that and is only for setups where the callers are themselves pool threads.
+     */
+    private static RejectedExecutionHandler rejectionHandler(String name,
+            DownstreamProperties.RejectionPolicy rejectionPolicy) {
+        return switch (rejectionPolicy) {
+            case ABORT -> (runnable, executor) -> {
+                throw new ExecutorSaturatedException("The " + name + " executor is saturated");
+            };
+            case CALLER_RUNS -> new ThreadPoolExecutor.CallerRunsPolicy();
+        };
+    }
+
+    private static RejectedExecutionHandler countingRejections(RejectedExecutionHandler delegate, Counter rejected,
+            String name) {
+        return (runnable, executor) -> {
+            rejected.increment();
+            log.warn("The {} executor is saturated, active {}, queued {}", name, executor.getActiveCount(),
+                    executor.getQueue().size());
+            delegate.rejectedExecution(runnable, executor);
+        };
+    }
+}
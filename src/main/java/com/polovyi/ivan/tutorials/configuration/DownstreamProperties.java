@@ -0,0 +1,151 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "downstream")
+public class DownstreamProperties {
+
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM_POOLS;
+
+    private boolean coalesceReads = true;
+
+    private int batchMaxSize = 500;
+
+    private Map<Downstream, Client> clients = new EnumMap<>(Downstream.class);
+
+    public Client client(Downstream downstream) {
+        return clients.computeIfAbsent(downstream, d -> new Client());
+    }
+
+    @Data
+    public static class Client {
+
+        private Pool pool = new Pool();
+
+        private Duration timeout;
+
+        private Duration hedgeDelay;
+
+        private Cache cache = new Cache();
+
+        private Batching batching = new Batching();
+
+        private Retry retry = new Retry();
+
+        private Limit limit = new Limit();
+
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+        private Bulkhead bulkhead = new Bulkhead();
+
+    }
+
+    @Data
+    public static class Cache {
+
+        private boolean enabled;
+
+        private Duration ttl = Duration.ofMinutes(5);
+
+        private long maximumSize = 10_000;
+
+    }
+
+    @Data
+    public static class Pool {
+
+        private int coreSize = 4;
+
+        private int maxSize = 16;
+
+        private int queueCapacity = 100;
+
+        private Duration keepAlive = Duration.ofSeconds(60);
+
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+    }
+
+    @Data
+    public static class Batching {
+
+        private boolean enabled;
+
+        private Duration window = Duration.ofMillis(10);
+
+        private int maxBatchSize = 100;
+
+    }
+
+    @Data
+    public static class Retry {
+
+        private int maxAttempts = 1;
+
+        private Duration backoff = Duration.ofMillis(100);
+
+    }
+
+    @Data
+    public static class Limit {
+
+        private boolean enabled;
+
+        private int initialLimit = 20;
+
+        private int minLimit = 4;
+
+        private int maxLimit = 200;
+
+        private double tolerance = 1.5;
+
+    }
+
+    @Data
+    public static class CircuitBreaker {
+
+        private boolean enabled;
+
+        private int windowSize = 20;
+
+        private int minimumCalls = 10;
+
+        private double failureRateThreshold = 0.5;
+
+        private double slowCallRateThreshold = 0.8;
+
+        private Duration slowCallDuration;
+
+        private Duration openDuration = Duration.ofSeconds(10);
+
+        private int halfOpenCalls = 3;
+
+    }
+
+    @Data
+    public static class Bulkhead {
+
+        private boolean enabled;
+
+        private int maxConcurrentCalls = 12;
+
+    }
+
+    public enum ExecutionMode {
+        COMMON_POOL,
+        PLATFORM_POOLS,
+        VIRTUAL_THREADS
+    }
+
+    public enum RejectionPolicy {
+        ABORT,
+        CALLER_RUNS
+    }
+}
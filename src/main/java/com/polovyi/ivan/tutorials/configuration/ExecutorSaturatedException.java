@@ -0,0 +1,14 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ExecutorSaturatedException extends RejectedExecutionException {
+
+    public ExecutorSaturatedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,26 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "export")
+public class ExportProperties {
+
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"));
+
+    private int defaultConcurrency = 8;
+
+    private int maxConcurrency = 12;
+
+    /* customers being enriched across all running exports, kept well below the smallest client bulkhead */
+    private int maxInFlight = 12;
+
+    private int maxRunningExports = 4;
+
+    private Duration timeout = Duration.ofMinutes(5);
+
+}
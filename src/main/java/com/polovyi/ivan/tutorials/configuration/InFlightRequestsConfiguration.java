@@ -0,0 +1,55 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/*
+ * http.server.requests.active counts requests from handler mapping until the response is complete, so requests
+ * parked on a CompletableFuture are counted although they no longer hold a Tomcat thread.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class InFlightRequestsConfiguration implements WebMvcConfigurer {
+
+    private static final String ACTIVE_SAMPLE = InFlightRequestsConfiguration.class.getName() + ".ACTIVE_SAMPLE";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (request.getAttribute(ACTIVE_SAMPLE) == null) {
+                    Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    request.setAttribute(ACTIVE_SAMPLE, LongTaskTimer.builder("http.server.requests.active")
+                            .tag("method", request.getMethod())
+                            .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+                            .register(meterRegistry)
+                            .start());
+                }
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                    Exception ex) {
+                Object active = request.getAttribute(ACTIVE_SAMPLE);
+                if (active instanceof LongTaskTimer.Sample sample) {
+                    sample.stop();
+                    request.removeAttribute(ACTIVE_SAMPLE);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.polovyi.ivan.tutorials.concurrent.AdaptiveLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * One adaptive concurrency limit per endpoint (method and pattern), measured from handler mapping until the
+ * response is complete. Requests over the limit are answered 503 with Retry-After before the handler runs, so an
+ * overloaded service keeps serving what it admits at normal latency instead of slowing everything down together.
+ */
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "load-shedding", name = "enabled", havingValue = "true")
+public class LoadSheddingConfiguration implements WebMvcConfigurer {
+
+    private static final String PERMIT = LoadSheddingConfiguration.class.getName() + ".PERMIT";
+
+    private final LoadSheddingProperties loadSheddingProperties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (request.getAttribute(PERMIT) != null) {
+                    return true;
+                }
+                AdaptiveLimiter limiter = limiters.computeIfAbsent(endpoint(request), this::limiter);
+                AdaptiveLimiter.Permit permit = limiter.tryAcquire().orElseThrow(() -> {
+                    response.setHeader(HttpHeaders.RETRY_AFTER,
+                            String.valueOf(Math.max(1, loadSheddingProperties.getRetryAfter().toSeconds())));
+                    return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "Over the concurrency limit of " + limiter.getLimit());
+                });
+                request.setAttribute(PERMIT, permit);
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                    Exception ex) {
+                Object attribute = request.getAttribute(PERMIT);
+                if (attribute instanceof AdaptiveLimiter.Permit permit) {
+                    if (ex == null && response.getStatus() < 500) {
+                        permit.onSuccess();
+                    } else {
+                        permit.onDropped();
+                    }
+                }
+            }
+
+            private AdaptiveLimiter limiter(String endpoint) {
+                DownstreamProperties.Limit limit = loadSheddingProperties.getLimit();
+                AdaptiveLimiter limiter = new AdaptiveLimiter(endpoint, limit.getInitialLimit(), limit.getMinLimit(),
+                        limit.getMaxLimit(), limit.getTolerance());
+                limiter.bindTo(meterRegistry);
+                return limiter;
+            }
+        }).addPathPatterns(loadSheddingProperties.getPathPatterns());
+    }
+
+    private static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern == null ? request.getRequestURI() : pattern);
+    }
+}
@@ -0,0 +1,21 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "load-shedding")
+public class LoadSheddingProperties {
+
+    private boolean enabled;
+
+    private List<String> pathPatterns = List.of("/v1/customers/completable-feature/**");
+
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    private DownstreamProperties.Limit limit = new DownstreamProperties.Limit();
+
+}
@@ -0,0 +1,104 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.util.List;
+
+/*
+ * The application itself stays a servlet app, so the reactive routes get their own Reactor Netty server.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "reactive-server", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveServer implements SmartLifecycle {
+
+    private final List<RouterFunction<ServerResponse>> routerFunctions;
+    private final ObjectMapper objectMapper;
+    private final ReactiveServerProperties reactiveServerProperties;
+    private final MeterRegistry meterRegistry;
+
+    private WebServer webServer;
+
+    @Override
+    public void start() {
+        HandlerStrategies handlerStrategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        RouterFunction<ServerResponse> routes = routerFunctions.stream()
+                .reduce(RouterFunction::and)
+                .orElseThrow()
+                .filter(requestMetrics());
+        webServer = new NettyReactiveWebServerFactory(reactiveServerProperties.getPort())
+                .getWebServer(RouterFunctions.toHttpHandler(routes, handlerStrategies));
+        webServer.start();
+        log.info("Reactive endpoints listening on port {}", webServer.getPort());
+    }
+
+    /*
+     * Boot only instruments WebFlux when it owns the server, so record the same http.server.requests timers and
+     * in-flight gauge the servlet side gets. A handler that completes empty leaves the default 200 in place.
+     */
+    HandlerFilterFunction<ServerResponse, ServerResponse> requestMetrics() {
+        return (request, next) -> {
+            String uri = request.attribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE)
+                    .map(Object::toString)
+                    .orElse("UNKNOWN");
+            LongTaskTimer.Sample active = LongTaskTimer.builder("http.server.requests.active")
+                    .tag("method", request.methodName())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .start();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return next.handle(request)
+                    .doOnSuccess(response -> sample.stop(requestTimer(request, uri,
+                            response == null ? HttpStatus.OK.value() : response.rawStatusCode(), null)))
+                    .doOnError(failure -> sample.stop(requestTimer(request, uri, 500, failure)))
+                    .doFinally(signal -> active.stop());
+        };
+    }
+
+    private Timer requestTimer(ServerRequest request, String uri, int status, Throwable failure) {
+        return Timer.builder("http.server.requests")
+                .tag("method", request.methodName())
+                .tag("uri", uri)
+                .tag("status", String.valueOf(status))
+                .tag("outcome", Outcome.forStatus(status).name())
+                .tag("exception", failure == null ? "None" : failure.getClass().getSimpleName())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void stop() {
+        webServer.stop();
+        webServer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return webServer != null;
+    }
+}
@@ -0,0 +1,14 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "reactive-server")
+public class ReactiveServerProperties {
+
+    private boolean enabled = true;
+
+    private int port = 8081;
+
+}
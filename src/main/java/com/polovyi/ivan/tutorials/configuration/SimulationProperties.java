@@ -0,0 +1,95 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Data
+@ConfigurationProperties(prefix = "simulation")
+public class SimulationProperties {
+
+    private Map<Downstream, Profile> clients = withEveryDownstream(Map.of());
+
+    /* every downstream has a profile from binding on, so lookups from the client pools never write to the map */
+    public void setClients(Map<Downstream, Profile> clients) {
+        this.clients = withEveryDownstream(clients);
+    }
+
+    public Profile profile(Downstream downstream) {
+        return clients.get(downstream);
+    }
+
+    private static Map<Downstream, Profile> withEveryDownstream(Map<Downstream, Profile> clients) {
+        Map<Downstream, Profile> profiles = new EnumMap<>(Downstream.class);
+        for (Downstream downstream : Downstream.values()) {
+            profiles.put(downstream, clients.getOrDefault(downstream, new Profile()));
+        }
+        return profiles;
+    }
+
+    @Data
+    public static class Profile {
+
+        private Latency latency = new Latency();
+
+        private double errorRate;
+
+        private double timeoutRate;
+
+        private Duration timeout = Duration.ofSeconds(30);
+
+        private double slowTailRate;
+
+        private double slowTailMultiplier = 10;
+
+    }
+
+    @Data
+    public static class Latency {
+
+        private Distribution distribution = Distribution.FIXED;
+
+        private Duration fixed = Duration.ZERO;
+
+        private Duration min = Duration.ZERO;
+
+        private Duration max = Duration.ZERO;
+
+        private Duration median = Duration.ZERO;
+
+        private Duration p99 = Duration.ZERO;
+
+        private List<Percentile> histogram = List.of();
+
+        /* sorted once here rather than on every sample */
+        public void setHistogram(List<Percentile> histogram) {
+            this.histogram = histogram.stream()
+                    .sorted(Comparator.comparingDouble(Percentile::getPercentile))
+                    .collect(Collectors.toList());
+        }
+
+    }
+
+    @Data
+    public static class Percentile {
+
+        private double percentile;
+
+        private Duration latency;
+
+    }
+
+    public enum Distribution {
+        FIXED,
+        UNIFORM,
+        LOG_NORMAL,
+        HISTOGRAM
+    }
+}
@@ -0,0 +1,85 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.polovyi.ivan.tutorials.concurrent.Span;
+import com.polovyi.ivan.tutorials.concurrent.Tracing;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Opens the root span of every MVC request, continuing the caller's trace when it sends a W3C traceparent header.
+ * A request answered with a CompletableFuture leaves this filter before it is done, so its span ends on the async
+ * completion instead.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TracingFilter extends OncePerRequestFilter {
+
+    private static final String TRACEPARENT = "traceparent";
+
+    private static final Pattern TRACEPARENT_FORMAT = Pattern.compile("00-([0-9a-f]{32})-([0-9a-f]{16})-[0-9a-f]{2}");
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Span span = rootSpan(request);
+        response.setHeader(TRACEPARENT, "00-" + span.getTraceId() + "-" + span.getSpanId() + "-01");
+        boolean async = false;
+        try (Tracing.Scope scope = span.makeCurrent()) {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(endingListener(span));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                span.end();
+            }
+        }
+    }
+
+    private static Span rootSpan(HttpServletRequest request) {
+        String name = request.getMethod() + " " + request.getRequestURI();
+        String traceparent = request.getHeader(TRACEPARENT);
+        Matcher matcher = traceparent == null ? null : TRACEPARENT_FORMAT.matcher(traceparent);
+        if (matcher != null && matcher.matches()) {
+            return Span.root(name, matcher.group(1), matcher.group(2));
+        }
+        return Span.root(name);
+    }
+
+    private static AsyncListener endingListener(Span span) {
+        return new AsyncListener() {
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+                span.end();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                span.end();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                span.end();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        };
+    }
+}
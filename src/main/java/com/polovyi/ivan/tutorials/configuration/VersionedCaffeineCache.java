@@ -0,0 +1,90 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Read-through cache that never puts back a value read before the key was evicted. @Cacheable looks the key up,
+ * calls the client on a miss and puts the result, all on the calling thread: the miss remembers the key's generation,
+ * every evict bumps it, and the put is dropped if the generation moved meanwhile. Without it, a read that started
+ * before a write could cache the old value after the write's eviction and serve it until the ttl expired.
+ * Generations are striped, so two keys may share one; a put is then skipped needlessly, never wrongly.
+ */
+public class VersionedCaffeineCache extends CaffeineCache {
+
+    private static final int STRIPES = 1024;
+
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    private final ThreadLocal<Miss> lastMiss = new ThreadLocal<>();
+
+    public VersionedCaffeineCache(String name, Cache<Object, Object> cache, boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        long generation = generations.get(stripe(key));
+        Object value = super.lookup(key);
+        if (value == null) {
+            lastMiss.set(new Miss(key, generation));
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Miss miss = lastMiss.get();
+        lastMiss.remove();
+        Object storeValue = toStoreValue(value);
+        getNativeCache().asMap().compute(key, (k, existing) -> miss != null && miss.key().equals(key)
+                && miss.generation() != generations.get(stripe(key)) ? existing : storeValue);
+    }
+
+    @Override
+    public void evict(Object key) {
+        getNativeCache().asMap().compute(key, (k, existing) -> {
+            generations.incrementAndGet(stripe(key));
+            return null;
+        });
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean[] present = new boolean[1];
+        getNativeCache().asMap().compute(key, (k, existing) -> {
+            generations.incrementAndGet(stripe(key));
+            present[0] = existing != null;
+            return null;
+        });
+        return present[0];
+    }
+
+    @Override
+    public void clear() {
+        advanceAllGenerations();
+        super.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        advanceAllGenerations();
+        return super.invalidate();
+    }
+
+    private void advanceAllGenerations() {
+        for (int i = 0; i < STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    private record Miss(Object key, long generation) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties.ExecutionMode;
+import com.polovyi.ivan.tutorials.utils.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+@Slf4j
+@Configuration
+@Conditional(VirtualThreadConfiguration.VirtualThreadsMode.class)
+public class VirtualThreadConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadRequestExecutor() {
+        log.info("Serving requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.threadPerTaskExecutor("http-vt-"));
+    }
+
+    /*
+     * Binds the mode like DownstreamProperties does, so virtual-threads, VIRTUAL_THREADS or virtualThreads all match.
+     */
+    static class VirtualThreadsMode implements Condition {
+
+        @Override
+        public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            return Binder.get(context.getEnvironment())
+                    .bind("downstream.execution-mode", ExecutionMode.class)
+                    .map(ExecutionMode.VIRTUAL_THREADS::equals)
+                    .orElse(false);
+        }
+    }
+}
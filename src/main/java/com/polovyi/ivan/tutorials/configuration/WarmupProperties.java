@@ -0,0 +1,35 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "warmup")
+public class WarmupProperties {
+
+    private boolean enabled;
+
+    private boolean serializedView;
+
+    private int topK = 100;
+
+    private int expectedCustomers = 100_000;
+
+    private Duration ttl = Duration.ofMinutes(1);
+
+    private Duration refreshAhead = Duration.ofSeconds(15);
+
+    private Duration refreshInterval = Duration.ofSeconds(5);
+
+    private int maximumSize = 10_000;
+
+    private int concurrency = 16;
+
+    private List<Integer> preloadIds = List.of();
+
+    private int preloadFirst;
+
+}
@@ -0,0 +1,24 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "write-behind")
+public class WriteBehindProperties {
+
+    private boolean enabled;
+
+    private Duration pollInterval = Duration.ofMillis(100);
+
+    private Duration maxIdleInterval = Duration.ofSeconds(5);
+
+    private int batchSize = 500;
+
+    private int workers = 16;
+
+    private int maxAttempts = 3;
+
+}
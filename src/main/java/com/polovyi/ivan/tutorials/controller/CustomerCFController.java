@@ -1,19 +1,35 @@
 package com.polovyi.ivan.tutorials.controller;
 
+import com.polovyi.ivan.tutorials.dto.BatchCustomerRequest;
+import com.polovyi.ivan.tutorials.dto.CustomerFields;
 import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.dto.CustomerUpdateResponse;
+import com.polovyi.ivan.tutorials.dto.ExportResponse;
 import com.polovyi.ivan.tutorials.dto.UpdateCustomerRequest;
 import com.polovyi.ivan.tutorials.service.CustomerCompletableFeatureService;
+import com.polovyi.ivan.tutorials.service.CustomerExportService;
+import com.polovyi.ivan.tutorials.service.CustomerUpdateQueue;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 @RequiredArgsConstructor
@@ -21,7 +37,11 @@ import java.util.concurrent.CompletableFuture;
 @RequestMapping("/v1/customers/completable-feature")
 public class CustomerCFController {
 
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     private final CustomerCompletableFeatureService customerCompletableFeatureService;
+    private final CustomerExportService customerExportService;
+    private final CustomerUpdateQueue customerUpdateQueue;
 
     @PutMapping("/{customerId}")
     @ResponseStatus(HttpStatus.ACCEPTED)
@@ -30,18 +50,60 @@ public class CustomerCFController {
     }
 
     @PatchMapping("/{customerId}")
-    @ResponseStatus(HttpStatus.ACCEPTED)
-    public CompletableFuture<Void> updateCustomerUsingCompletableFeature(@PathVariable Integer customerId, @RequestBody UpdateCustomerRequest request) {
-        return customerCompletableFeatureService.updateCustomer(customerId, request);
+    public CompletableFuture<ResponseEntity<CustomerUpdateResponse>> updateCustomerUsingCompletableFeature(@PathVariable Integer customerId, @RequestBody UpdateCustomerRequest request) {
+        if (customerUpdateQueue.isEnabled()) {
+            CustomerUpdateResponse update = customerUpdateQueue.enqueue(customerId, request);
+            URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/v1/customers/completable-feature/updates/{updateId}")
+                    .buildAndExpand(update.getUpdateId())
+                    .toUri();
+            return CompletableFuture.completedFuture(ResponseEntity.accepted().location(location).body(update));
+        }
+        return customerCompletableFeatureService.updateCustomer(customerId, request)
+                .thenApply(unusedVariable -> ResponseEntity.accepted().build());
+    }
+
+    @GetMapping("/updates/{updateId}")
+    public CustomerUpdateResponse getCustomerUpdate(@PathVariable Long updateId) {
+        return customerUpdateQueue.getUpdate(updateId);
     }
 
     @GetMapping("/{customerId}")
-    public CompletableFuture<CustomerResponse> getCustomerByIdUsingCompletableFeature(@PathVariable Integer customerId) {
-        return customerCompletableFeatureService.getCustomerById(customerId);
+    public CompletableFuture<ResponseEntity<?>> getCustomerByIdUsingCompletableFeature(@PathVariable Integer customerId,
+            @RequestParam(required = false) String fields) {
+        CustomerFields customerFields = CustomerFields.parse(fields);
+        if (customerFields.equals(CustomerFields.ALL)) {
+            Optional<byte[]> json = customerCompletableFeatureService.getCustomerJsonById(customerId);
+            if (json.isPresent()) {
+                return CompletableFuture.completedFuture(ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(json.get()));
+            }
+        }
+        return customerCompletableFeatureService.getCustomerById(customerId, customerFields)
+                .thenApply(ResponseEntity::ok);
     }
 
     @GetMapping("/all-of/{customerId}")
-    public CompletableFuture<CustomerResponse> getCustomerByIdUsingCompletableFeatureUsingAllOf(@PathVariable Integer customerId) {
-        return customerCompletableFeatureService.getCustomerByIdUsingAllOf(customerId);
+    public CompletableFuture<CustomerResponse> getCustomerByIdUsingCompletableFeatureUsingAllOf(@PathVariable Integer customerId,
+            @RequestParam(required = false) String fields) {
+        return customerCompletableFeatureService.getCustomerByIdUsingAllOf(customerId, CustomerFields.parse(fields));
+    }
+
+    @PostMapping("/batch")
+    public CompletableFuture<List<CustomerResponse>> getCustomersByIdsUsingCompletableFeature(@RequestBody BatchCustomerRequest request) {
+        return customerCompletableFeatureService.getCustomersByIds(request.getCustomerIds());
+    }
+
+    @GetMapping(value = "/export", produces = APPLICATION_NDJSON)
+    public ResponseEntity<ResponseBodyEmitter> exportCustomers(@RequestParam(required = false) Integer concurrency) {
+        return ResponseEntity.ok()
+                .header("Content-Type", APPLICATION_NDJSON)
+                .body(customerExportService.exportToResponse(concurrency));
+    }
+
+    @PostMapping("/export")
+    public DeferredResult<ExportResponse> exportCustomersToFile(@RequestParam(required = false) Integer concurrency) {
+        return customerExportService.exportToFile(concurrency);
     }
 }
@@ -1,18 +1,25 @@
 package com.polovyi.ivan.tutorials.controller;
 
+import com.polovyi.ivan.tutorials.dto.CustomerFields;
+import com.polovyi.ivan.tutorials.dto.CustomerPage;
 import com.polovyi.ivan.tutorials.dto.CustomerResponse;
 import com.polovyi.ivan.tutorials.dto.UpdateCustomerRequest;
 import com.polovyi.ivan.tutorials.service.CustomerService;
+import com.polovyi.ivan.tutorials.service.CustomerStreamService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -21,13 +28,32 @@ import java.util.List;
 @RequestMapping("/v1/customers")
 public class CustomerController {
 
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final CustomerService customerService;
+    private final CustomerStreamService customerStreamService;
 
     @GetMapping
     public List<CustomerResponse> getCustomers() {
         return customerService.getAllCustomers();
     }
 
+    @GetMapping(params = "limit")
+    public CustomerPage getCustomersPage(@RequestParam(required = false) Integer after, @RequestParam int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return customerService.getCustomersPage(after, limit);
+    }
+
+    @GetMapping(produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamCustomers() {
+        return ResponseEntity.ok()
+                .header("Content-Type", APPLICATION_NDJSON)
+                .body(customerStreamService::streamCustomers);
+    }
+
     @PutMapping("/{customerId}")
     @ResponseStatus(HttpStatus.ACCEPTED)
     public void replaceCustomer(@PathVariable Integer customerId,
@@ -43,7 +69,8 @@ public class CustomerController {
     }
 
     @GetMapping("/{customerId}")
-    public CustomerResponse getCustomerById(@PathVariable Integer customerId) {
-        return customerService.getCustomerById(customerId);
+    public CustomerResponse getCustomerById(@PathVariable Integer customerId,
+            @RequestParam(required = false) String fields) {
+        return customerService.getCustomerById(customerId, CustomerFields.parse(fields));
     }
 }
@@ -0,0 +1,32 @@
+package com.polovyi.ivan.tutorials.controller;
+
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.service.ReactiveCustomerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+@Component
+@RequiredArgsConstructor
+public class ReactiveCustomerHandler {
+
+    private final ReactiveCustomerService reactiveCustomerService;
+
+    public Mono<ServerResponse> getAllCustomers(ServerRequest request) {
+        return ServerResponse.ok()
+                .body(reactiveCustomerService.getAllCustomers(), CustomerResponse.class);
+    }
+
+    public Mono<ServerResponse> getCustomerById(ServerRequest request) {
+        return Mono.fromCallable(() -> Integer.valueOf(request.pathVariable("customerId")))
+                .onErrorMap(NumberFormatException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Customer id must be a number"))
+                .flatMap(reactiveCustomerService::getCustomerById)
+                .flatMap(customerResponse -> ServerResponse.ok().bodyValue(customerResponse))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+}
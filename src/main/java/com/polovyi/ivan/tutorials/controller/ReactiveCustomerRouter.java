@@ -0,0 +1,20 @@
+package com.polovyi.ivan.tutorials.controller;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+@Configuration
+public class ReactiveCustomerRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveCustomerRoutes(ReactiveCustomerHandler handler) {
+        return RouterFunctions.route()
+                .path("/v2/customers", builder -> builder
+                        .GET("/{customerId}", handler::getCustomerById)
+                        .GET("", handler::getAllCustomers))
+                .build();
+    }
+}
@@ -0,0 +1,16 @@
+package com.polovyi.ivan.tutorials.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCustomerRequest {
+
+    private List<Integer> customerIds;
+
+}
@@ -0,0 +1,96 @@
+package com.polovyi.ivan.tutorials.dto;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+ * The CustomerResponse properties a caller asked for with fields=, e.g. fields=phoneNumber,loyaltyResponse. A section
+ * backed by a downstream is only fetched when one of its properties was requested; the customer itself is always
+ * read, both to answer 404 for unknown ids and because its columns come in the same row.
+ */
+@ToString
+@EqualsAndHashCode
+public class CustomerFields {
+
+    public static final CustomerFields ALL = new CustomerFields(EnumSet.allOf(Field.class));
+
+    private final Set<Field> fields;
+
+    private CustomerFields(Set<Field> fields) {
+        this.fields = fields;
+    }
+
+    public static CustomerFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<Field> requested = EnumSet.of(Field.ID);
+        for (String property : fields.split(",")) {
+            requested.add(Arrays.stream(Field.values())
+                    .filter(field -> field.property.equals(property.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Unknown field '" + property.trim() + "', expected any of " + Arrays.stream(Field.values())
+                                    .map(field -> field.property)
+                                    .collect(Collectors.joining(",")))));
+        }
+        return new CustomerFields(requested);
+    }
+
+    public boolean includes(Downstream section) {
+        return fields.stream().anyMatch(field -> field.section == section);
+    }
+
+    /*
+     * Clears what was not asked for: the customer columns, and the sections of a customer that was assembled in full
+     * (e.g. served from the hot customer cache).
+     */
+    public CustomerResponse project(CustomerResponse customerResponse) {
+        if (!includes(Downstream.ADDRESS)) {
+            customerResponse.setAddressResponse(null);
+        }
+        if (!includes(Downstream.LOYALTY)) {
+            customerResponse.setLoyaltyResponse(null);
+        }
+        if (!includes(Downstream.FINANCIAL)) {
+            customerResponse.setFinancialResponses(null);
+        }
+        if (!includes(Downstream.PURCHASE_TRANSACTION)) {
+            customerResponse.setPurchaseTransactions(null);
+        }
+        if (!fields.contains(Field.FULL_NAME)) {
+            customerResponse.setFullName(null);
+        }
+        if (!fields.contains(Field.PHONE_NUMBER)) {
+            customerResponse.setPhoneNumber(null);
+        }
+        if (!fields.contains(Field.CREATED_AT)) {
+            customerResponse.setCreatedAt(null);
+        }
+        return customerResponse;
+    }
+
+    @RequiredArgsConstructor
+    private enum Field {
+        ID("id", Downstream.REPOSITORY),
+        FULL_NAME("fullName", Downstream.REPOSITORY),
+        PHONE_NUMBER("phoneNumber", Downstream.REPOSITORY),
+        CREATED_AT("createdAt", Downstream.REPOSITORY),
+        ADDRESS("addressResponse", Downstream.ADDRESS),
+        LOYALTY("loyaltyResponse", Downstream.LOYALTY),
+        FINANCIAL("financialResponses", Downstream.FINANCIAL),
+        PURCHASE_TRANSACTIONS("purchaseTransactions", Downstream.PURCHASE_TRANSACTION);
+
+        private final String property;
+        private final Downstream section;
+    }
+}
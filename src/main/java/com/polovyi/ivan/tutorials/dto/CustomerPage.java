@@ -0,0 +1,20 @@
+package com.polovyi.ivan.tutorials.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CustomerPage {
+
+    private List<CustomerResponse> customers;
+
+    private Integer nextCursor;
+
+}
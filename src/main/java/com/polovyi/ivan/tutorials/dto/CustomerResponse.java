@@ -1,6 +1,7 @@
 package com.polovyi.ivan.tutorials.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.polovyi.ivan.tutorials.client.Downstream;
 import com.polovyi.ivan.tutorials.entity.CustomerEntity;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -9,9 +10,10 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -33,6 +35,8 @@ public class CustomerResponse {
 
     private List<PurchaseTransactionResponse> purchaseTransactions;
 
+    private Set<Downstream> degradedSections;
+
     public static CustomerResponse valueOf(CustomerEntity customer) {
         return builder()
                 .id(customer.getId())
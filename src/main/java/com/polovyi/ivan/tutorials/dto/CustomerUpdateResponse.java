@@ -0,0 +1,45 @@
+package com.polovyi.ivan.tutorials.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.polovyi.ivan.tutorials.entity.CustomerUpdateEntity;
+import com.polovyi.ivan.tutorials.entity.CustomerUpdateStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CustomerUpdateResponse {
+
+    private Long updateId;
+
+    private Integer customerId;
+
+    private CustomerUpdateStatus status;
+
+    private int attempts;
+
+    private Instant createdAt;
+
+    private Instant appliedAt;
+
+    private String error;
+
+    public static CustomerUpdateResponse valueOf(CustomerUpdateEntity update) {
+        return builder()
+                .updateId(update.getId())
+                .customerId(update.getCustomerId())
+                .status(update.getStatus())
+                .attempts(update.getAttempts())
+                .createdAt(update.getCreatedAt())
+                .appliedAt(update.getAppliedAt())
+                .error(update.getError())
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.polovyi.ivan.tutorials.dto;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportResponse {
+
+    private String file;
+
+    private long customers;
+
+    private long durationMillis;
+
+    /* how many of the exported customers were written with each section degraded */
+    private Map<Downstream, Long> degradedSections;
+
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.util.CollectionUtils;
 
 import java.util.Set;
 
@@ -19,4 +20,19 @@ public class UpdateCustomerRequest {
 
     private UpdateAddressRequest address;
 
+    /*
+     * An empty financialInfo is not a change: an update only writes the financial info it has.
+     */
+    public boolean hasChanges() {
+        return phoneNumber != null || !CollectionUtils.isEmpty(financialInfo) || address != null;
+    }
+
+    public UpdateCustomerRequest mergedWith(UpdateCustomerRequest later) {
+        return builder()
+                .phoneNumber(later.getPhoneNumber() != null ? later.getPhoneNumber() : phoneNumber)
+                .financialInfo(!CollectionUtils.isEmpty(later.getFinancialInfo()) ? later.getFinancialInfo() : financialInfo)
+                .address(later.getAddress() != null ? later.getAddress() : address)
+                .build();
+    }
+
 }
@@ -0,0 +1,50 @@
+package com.polovyi.ivan.tutorials.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import java.time.Instant;
+
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "customer_update", indexes = {
+        @Index(columnList = "status, id"),
+        @Index(columnList = "customerId, status")
+})
+public class CustomerUpdateEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Integer customerId;
+
+    @Lob
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    private CustomerUpdateStatus status;
+
+    private int attempts;
+
+    private Instant createdAt;
+
+    private Instant appliedAt;
+
+    private String error;
+
+}
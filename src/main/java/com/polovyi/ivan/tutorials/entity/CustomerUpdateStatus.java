@@ -0,0 +1,8 @@
+package com.polovyi.ivan.tutorials.entity;
+
+public enum CustomerUpdateStatus {
+    PENDING,
+    IN_PROGRESS,
+    APPLIED,
+    FAILED
+}
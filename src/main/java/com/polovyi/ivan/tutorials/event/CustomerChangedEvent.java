@@ -0,0 +1,10 @@
+package com.polovyi.ivan.tutorials.event;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+
+/*
+ * Published after a write to one part of a customer has been applied (REPOSITORY for the customer row itself), so
+ * whatever holds an assembled copy of the customer can drop it.
+ */
+public record CustomerChangedEvent(Integer customerId, Downstream section) {
+}
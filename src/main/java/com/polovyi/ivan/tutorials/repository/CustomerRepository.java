@@ -1,10 +1,29 @@
 package com.polovyi.ivan.tutorials.repository;
 
 import com.polovyi.ivan.tutorials.entity.CustomerEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 public interface CustomerRepository extends JpaRepository<CustomerEntity, Integer> {
 
+    List<CustomerEntity> findByIdGreaterThanOrderByIdAsc(Integer afterId, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select c from CustomerEntity c order by c.id")
+    Stream<CustomerEntity> streamAll();
+
 }
@@ -0,0 +1,32 @@
+package com.polovyi.ivan.tutorials.repository;
+
+import com.polovyi.ivan.tutorials.entity.CustomerUpdateEntity;
+import com.polovyi.ivan.tutorials.entity.CustomerUpdateStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface CustomerUpdateRepository extends JpaRepository<CustomerUpdateEntity, Long> {
+
+    /*
+     * Pending updates of customers that have no write in progress, so a customer busy with a long write cannot fill
+     * the page and starve the others.
+     */
+    @Query("select u from CustomerUpdateEntity u where u.status = :pending and not exists ("
+            + "select o.id from CustomerUpdateEntity o where o.customerId = u.customerId and o.status = :inProgress) "
+            + "order by u.id")
+    List<CustomerUpdateEntity> findPendingOfIdleCustomers(CustomerUpdateStatus pending,
+            CustomerUpdateStatus inProgress, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update CustomerUpdateEntity u set u.status = :to where u.status = :from")
+    int updateStatus(CustomerUpdateStatus from, CustomerUpdateStatus to);
+
+}
@@ -1,198 +1,463 @@
 package com.polovyi.ivan.tutorials.service;
 
 import com.polovyi.ivan.tutorials.client.AddressClient;
+import com.polovyi.ivan.tutorials.client.BatchingDispatcher;
+import com.polovyi.ivan.tutorials.client.ClientBatchers;
+import com.polovyi.ivan.tutorials.client.Downstream;
 import com.polovyi.ivan.tutorials.client.FinancialClient;
 import com.polovyi.ivan.tutorials.client.LoyaltyClient;
 import com.polovyi.ivan.tutorials.client.PurchaseTransactionClient;
+import com.polovyi.ivan.tutorials.concurrent.AsyncAssembler;
+import com.polovyi.ivan.tutorials.concurrent.KeyedWriteCoalescer;
+import com.polovyi.ivan.tutorials.concurrent.WriteOrchestration;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
 import com.polovyi.ivan.tutorials.dto.Address;
 import com.polovyi.ivan.tutorials.dto.AddressResponse;
+import com.polovyi.ivan.tutorials.dto.CustomerFields;
 import com.polovyi.ivan.tutorials.dto.CustomerResponse;
 import com.polovyi.ivan.tutorials.dto.FinancialInfo;
+import com.polovyi.ivan.tutorials.dto.FinancialRequest;
 import com.polovyi.ivan.tutorials.dto.FinancialResponse;
 import com.polovyi.ivan.tutorials.dto.LoyaltyClientResponse;
 import com.polovyi.ivan.tutorials.dto.LoyaltyResponse;
+import com.polovyi.ivan.tutorials.dto.PurchaseTransaction;
 import com.polovyi.ivan.tutorials.dto.PurchaseTransactionResponse;
+import com.polovyi.ivan.tutorials.dto.UpdateAddressRequest;
 import com.polovyi.ivan.tutorials.dto.UpdateCustomerRequest;
+import com.polovyi.ivan.tutorials.entity.CustomerEntity;
+import com.polovyi.ivan.tutorials.event.CustomerChangedEvent;
 import com.polovyi.ivan.tutorials.repository.CustomerRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class CustomerCompletableFeatureService {
 
+    private static final String SERVICE = "completable-feature";
+
     private final CustomerRepository customerRepository;
     private final AddressClient addressClient;
     private final PurchaseTransactionClient purchaseTransactionClient;
     private final FinancialClient financialClient;
     private final LoyaltyClient loyaltyClient;
+    private final DownstreamCalls downstreamCalls;
+    private final DownstreamProperties downstreamProperties;
+    private final ClientBatchers clientBatchers;
+    private final RequestMetrics requestMetrics;
+    private final HotCustomerCache hotCustomerCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final KeyedWriteCoalescer<Integer, CustomerWrite> customerUpdates;
+
+    public CustomerCompletableFeatureService(CustomerRepository customerRepository, AddressClient addressClient,
+            PurchaseTransactionClient purchaseTransactionClient, FinancialClient financialClient,
+            LoyaltyClient loyaltyClient, DownstreamCalls downstreamCalls, DownstreamProperties downstreamProperties,
+            ClientBatchers clientBatchers, RequestMetrics requestMetrics, HotCustomerCache hotCustomerCache,
+            ApplicationEventPublisher eventPublisher) {
+        this.customerRepository = customerRepository;
+        this.addressClient = addressClient;
+        this.purchaseTransactionClient = purchaseTransactionClient;
+        this.financialClient = financialClient;
+        this.loyaltyClient = loyaltyClient;
+        this.downstreamCalls = downstreamCalls;
+        this.downstreamProperties = downstreamProperties;
+        this.clientBatchers = clientBatchers;
+        this.requestMetrics = requestMetrics;
+        this.hotCustomerCache = hotCustomerCache;
+        this.eventPublisher = eventPublisher;
+        this.customerUpdates = downstreamCalls.writeCoalescer("customer-updates", CustomerWrite::mergedWith,
+                this::applyUpdate);
+    }
 
     public CompletableFuture<Void> replaceCustomer(Integer customerId, UpdateCustomerRequest request) {
-        log.info("Replacing customer", customerId);
-        CompletableFuture<Void> updateCustomerCF = CompletableFuture.runAsync(() -> {
-            customerRepository.findById(customerId)
-                    .ifPresent(customerEntity -> {
-                        customerEntity.setPhoneNumber(request.getPhoneNumber());
-                        customerRepository.save(customerEntity);
-                    });
-        });
-        CompletableFuture<Void> updateFinancialInfoCF = CompletableFuture.runAsync(() -> {
-            Set<FinancialInfo> financialInfo = request.getFinancialInfo().stream()
-                    .map(FinancialInfo::valueOf)
-                    .collect(Collectors.toSet());
-            financialClient.updateFinancialInfo(customerId, financialInfo);
-        });
-        CompletableFuture<Void> updateAddressCF = CompletableFuture.runAsync(() -> {
-            Address address = Address.valueOf(request.getAddress());
-            addressClient.updateAddressByCustomerId(customerId, address);
-        });
-        return CompletableFuture.allOf(updateCustomerCF, updateAddressCF,
-                updateFinancialInfoCF);
+        log.info("Replacing customer {}", customerId);
+        return requestMetrics.start(SERVICE, "replace-customer")
+                .finish(customerUpdates.submit(customerId, new CustomerWrite(request, true)));
     }
 
     public CompletableFuture<Void> updateCustomer(Integer customerId, UpdateCustomerRequest request) {
-        log.info("Updating customer", customerId);
-        CompletableFuture<Void> updateCustomerCF = null;
-        if (request.getPhoneNumber() != null) {
+        log.info("Updating customer {}", customerId);
+        return requestMetrics.start(SERVICE, "update-customer")
+                .finish(customerUpdates.submit(customerId, new CustomerWrite(request, false)));
+    }
+
+    /*
+     * A replace writes every section, so what the request leaves out is cleared; an update only writes what it has.
+     */
+    private CompletableFuture<Void> applyUpdate(Integer customerId, CustomerWrite write) {
+        UpdateCustomerRequest request = write.request();
+        WriteOrchestration orchestration = downstreamCalls.orchestration("update-customer")
+                .step(customerExists(customerId));
+        if (write.replace() || request.getPhoneNumber() != null) {
             log.info("Received a phone number, updating customer");
-            updateCustomerCF = CompletableFuture.runAsync(() -> {
-                customerRepository.findById(customerId)
-                        .ifPresent(customerEntity -> {
-                            customerEntity.setPhoneNumber(request.getPhoneNumber());
-                            customerRepository.save(customerEntity);
-                        });
-            });
+            orchestration.step(updatePhoneNumber(customerId, request.getPhoneNumber()));
         }
-        CompletableFuture<Void> updateFinancialInfoCF = null;
-        if (!CollectionUtils.isEmpty(request.getFinancialInfo())) {
+        if (write.replace() || !CollectionUtils.isEmpty(request.getFinancialInfo())) {
             log.info("Received a financial info, updating it");
-            updateFinancialInfoCF = CompletableFuture.runAsync(() -> {
-                Set<FinancialInfo> financialInfo = request.getFinancialInfo().stream()
-                        .map(FinancialInfo::valueOf)
-                        .collect(Collectors.toSet());
-                financialClient.updateFinancialInfo(customerId, financialInfo);
-            });
+            orchestration.step(updateFinancialInfo(customerId,
+                    Objects.requireNonNullElse(request.getFinancialInfo(), Set.of())));
         }
-        CompletableFuture<Void> updateAddressCF = null;
-        if (request.getAddress() != null) {
+        if (write.replace() || request.getAddress() != null) {
             log.info("Received a address, updating it");
-            updateAddressCF = CompletableFuture.runAsync(() -> {
-                Address address = Address.valueOf(request.getAddress());
-                addressClient.updateAddressByCustomerId(customerId, address);
-            });
+            orchestration.step(updateAddress(customerId, request.getAddress()));
         }
-        List<CompletableFuture<Void>> completableFutures = Stream.of(updateCustomerCF, updateFinancialInfoCF, updateAddressCF)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-        log.info("Customer updated successfully!");
-        return CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture[completableFutures.size()]));
+        return orchestration.run()
+                .thenAccept(report -> log.info("Customer {} updated in {} ms", customerId, report.durationMillis()));
     }
 
     public CompletableFuture<CustomerResponse> getCustomerById(Integer customerId) {
-        log.info("Getting customer by id {} ", customerId);
-        CompletableFuture<Optional<CustomerResponse>> customerResponseCF = CompletableFuture.supplyAsync(
-                () -> customerRepository.findById(customerId)
-                        .map(CustomerResponse::valueOf));
-        CompletableFuture<AddressResponse> addressResponseCF = CompletableFuture.supplyAsync(
-                () -> addressClient.getAddressByCustomerId(customerId)
-                        .map(AddressResponse::valueOf)
-                        .orElse(null));
-        CompletableFuture<List<PurchaseTransactionResponse>> purchaseTransactionResponsesCF = CompletableFuture.supplyAsync(
-                () -> Stream.ofNullable(purchaseTransactionClient.getPurchaseTransactionsByCustomerId(customerId))
-                        .flatMap(Collection::stream)
-                        .map(PurchaseTransactionResponse::valueOf)
-                        .collect(Collectors.toList()));
-        CompletableFuture<List<FinancialResponse>> financialResponsesCF = CompletableFuture.supplyAsync(
-                () -> Stream.ofNullable(financialClient.getFinancialInfoByCustomerId(customerId))
-                        .flatMap(Collection::stream)
-                        .map(FinancialResponse::valueOf)
-                        .collect(Collectors.toList()));
-        CompletableFuture<LoyaltyResponse> loyaltyResponseCF = CompletableFuture.supplyAsync(
-                () -> loyaltyClient.getLoyaltyPointsByCustomerId(customerId)
-                        .map(LoyaltyClientResponse::getPoints)
-                        .map(LoyaltyResponse::new)
-                        .orElse(null));
+        return getCustomerById(customerId, CustomerFields.ALL);
+    }
 
-        CompletableFuture<CustomerResponse> response = customerResponseCF
-                .thenCombine(addressResponseCF, (customerResponse, addressResponse) -> {
-                    customerResponse.ifPresent(cr -> cr.setAddressResponse(addressResponse));
-                    return customerResponse;
-                })
-                .thenCombine(purchaseTransactionResponsesCF, (customerResponse, purchaseTransactionResponses) -> {
-                    customerResponse.ifPresent(cr -> cr.setPurchaseTransactions(purchaseTransactionResponses));
-                    return customerResponse;
-                })
-                .thenCombine(financialResponsesCF, (customerResponse, financialResponses) -> {
-                    customerResponse.ifPresent(cr -> cr.setFinancialResponses(financialResponses));
-                    return customerResponse;
-                })
-                .thenCombine(loyaltyResponseCF, (customerResponse, loyaltyResponse) -> {
-                    customerResponse.ifPresent(cr -> cr.setLoyaltyResponse(loyaltyResponse));
+    /*
+     * Served from the hot customer cache when it has the customer; a full read fills it.
+     */
+    public CompletableFuture<CustomerResponse> getCustomerById(Integer customerId, CustomerFields fields) {
+        hotCustomerCache.recordAccess(customerId);
+        Optional<CustomerResponse> hotCustomer = hotCustomerCache.get(customerId);
+        if (hotCustomer.isPresent()) {
+            log.debug("Getting customer by id {} from the hot customer cache", customerId);
+            return CompletableFuture.completedFuture(fields.project(hotCustomer.get()));
+        }
+        log.info("Getting customer by id {} ", customerId);
+        long stamp = hotCustomerCache.stamp(customerId);
+        return getCustomerById(customerId, fields, "get-customer")
+                .thenApply(customerResponse -> {
+                    if (fields.equals(CustomerFields.ALL)) {
+                        hotCustomerCache.put(customerId, customerResponse, stamp);
+                    }
                     return customerResponse;
-                })
-                .thenApply(customerResponse -> customerResponse.orElse(null));
-        return response;
+                });
+    }
+
+    /*
+     * The customer's JSON as written when it was cached, if it is in the hot customer cache's serialized view.
+     */
+    public Optional<byte[]> getCustomerJsonById(Integer customerId) {
+        Optional<byte[]> json = hotCustomerCache.getJson(customerId);
+        if (json.isPresent()) {
+            hotCustomerCache.recordAccess(customerId);
+        }
+        return json;
+    }
+
+    /*
+     * Reloads a customer into the hot customer cache, whether or not its entry expired yet, and completes with
+     * whether it was cached.
+     */
+    public CompletableFuture<Boolean> warmCustomer(Integer customerId) {
+        long stamp = hotCustomerCache.stamp(customerId);
+        return getCustomerById(customerId, CustomerFields.ALL, "warm-customer")
+                .thenApply(customerResponse -> hotCustomerCache.put(customerId, customerResponse, stamp));
+    }
+
+    private CompletableFuture<CustomerResponse> getCustomerById(Integer customerId, CustomerFields fields,
+            String operation) {
+        RequestMetrics.Timing timing = requestMetrics.start(SERVICE, operation);
+        Set<Downstream> degradedSections = ConcurrentHashMap.newKeySet();
+        return timing.finish(assembler(timing, timing.sectionAsync(Downstream.REPOSITORY, () -> fetchCustomer(customerId)),
+                customerId, fields, degradedSections)
+                .thenCombineAll()
+                .thenApply(customerResponse -> customerResponse
+                        .map(fields::project)
+                        .map(cr -> markDegraded(cr, degradedSections))
+                        .orElse(null)));
     }
 
     public CompletableFuture<CustomerResponse> getCustomerByIdUsingAllOf(Integer customerId) {
+        return getCustomerByIdUsingAllOf(customerId, CustomerFields.ALL);
+    }
+
+    public CompletableFuture<CustomerResponse> getCustomerByIdUsingAllOf(Integer customerId, CustomerFields fields) {
         log.info("Getting customer by id {} using allOf(...)", customerId);
-        CompletableFuture<Optional<CustomerResponse>> customerResponseCF = CompletableFuture.supplyAsync(
-                () -> customerRepository.findById(customerId)
-                        .map(CustomerResponse::valueOf));
-        CompletableFuture<AddressResponse> addressResponseCF = CompletableFuture.supplyAsync(
-                () -> addressClient.getAddressByCustomerId(customerId)
+        RequestMetrics.Timing timing = requestMetrics.start(SERVICE, "get-customer-all-of");
+        Set<Downstream> degradedSections = ConcurrentHashMap.newKeySet();
+        return timing.finish(assembler(timing, timing.sectionAsync(Downstream.REPOSITORY, () -> fetchCustomer(customerId)),
+                customerId, fields, degradedSections)
+                .allOf()
+                .thenApply(customerResponse -> customerResponse
+                        .map(fields::project)
+                        .map(cr -> markDegraded(cr, degradedSections))
+                        .orElse(null)));
+    }
+
+    public CompletableFuture<CustomerResponse> enrichCustomer(CustomerResponse customerResponse) {
+        RequestMetrics.Timing timing = requestMetrics.start(SERVICE, "enrich-customer");
+        Set<Downstream> degradedSections = ConcurrentHashMap.newKeySet();
+        return timing.finish(assembler(timing, CompletableFuture.completedFuture(Optional.of(customerResponse)),
+                customerResponse.getId(), CustomerFields.ALL, degradedSections)
+                .allOf()
+                .thenApply(enriched -> markDegraded(enriched.orElseThrow(), degradedSections)));
+    }
+
+    /*
+     * Only the sections that were asked for are started, so a narrow request neither waits for nor occupies the
+     * executors of the downstreams it does not need.
+     */
+    private AsyncAssembler<CustomerResponse> assembler(RequestMetrics.Timing timing,
+            CompletableFuture<Optional<CustomerResponse>> customerResponseCF, Integer customerId, CustomerFields fields,
+            Set<Downstream> degradedSections) {
+        AsyncAssembler<CustomerResponse> assembler = AsyncAssembler.of(customerResponseCF);
+        if (fields.includes(Downstream.ADDRESS)) {
+            assembler.with(timing.sectionAsync(Downstream.ADDRESS, () -> fetchAddress(customerId, degradedSections)),
+                    CustomerResponse::setAddressResponse);
+        }
+        if (fields.includes(Downstream.PURCHASE_TRANSACTION)) {
+            assembler.with(timing.sectionAsync(Downstream.PURCHASE_TRANSACTION,
+                            () -> fetchPurchaseTransactions(customerId, degradedSections)),
+                    CustomerResponse::setPurchaseTransactions);
+        }
+        if (fields.includes(Downstream.FINANCIAL)) {
+            assembler.with(timing.sectionAsync(Downstream.FINANCIAL,
+                            () -> fetchFinancialResponses(customerId, degradedSections)),
+                    CustomerResponse::setFinancialResponses);
+        }
+        if (fields.includes(Downstream.LOYALTY)) {
+            assembler.with(timing.sectionAsync(Downstream.LOYALTY, () -> fetchLoyalty(customerId, degradedSections)),
+                    CustomerResponse::setLoyaltyResponse);
+        }
+        return assembler;
+    }
+
+    public CompletableFuture<List<CustomerResponse>> getCustomersByIds(Collection<Integer> requestedIds) {
+        if (CollectionUtils.isEmpty(requestedIds)) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        Set<Integer> customerIds = new LinkedHashSet<>(requestedIds);
+        log.info("Getting {} customers in one batch", customerIds.size());
+        if (customerIds.size() > downstreamProperties.getBatchMaxSize()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + downstreamProperties.getBatchMaxSize() + " customers can be requested at once");
+        }
+        RequestMetrics.Timing timing = requestMetrics.start(SERVICE, "get-customers-batch");
+        Set<Downstream> degradedSections = ConcurrentHashMap.newKeySet();
+        CompletableFuture<List<CustomerEntity>> customersCF = timing.sectionAsync(Downstream.REPOSITORY,
+                () -> downstreamCalls.supply(Downstream.REPOSITORY, () -> customerRepository.findAllById(customerIds)));
+        CompletableFuture<Map<Integer, Address>> addressesCF = timing.sectionAsync(Downstream.ADDRESS,
+                () -> downstreamCalls.withinBudget(Downstream.ADDRESS, downstreamCalls.read(Downstream.ADDRESS,
+                                () -> addressClient.getAddressesByCustomerIds(customerIds)),
+                        Map.of(), degradedSections));
+        CompletableFuture<Map<Integer, Set<PurchaseTransaction>>> purchaseTransactionsCF = timing.sectionAsync(
+                Downstream.PURCHASE_TRANSACTION, () -> downstreamCalls.withinBudget(Downstream.PURCHASE_TRANSACTION,
+                        downstreamCalls.read(Downstream.PURCHASE_TRANSACTION,
+                                () -> purchaseTransactionClient.getPurchaseTransactionsByCustomerIds(customerIds)),
+                        Map.of(), degradedSections));
+        CompletableFuture<Map<Integer, Set<FinancialInfo>>> financialInfoCF = timing.sectionAsync(Downstream.FINANCIAL,
+                () -> downstreamCalls.withinBudget(Downstream.FINANCIAL, downstreamCalls.read(Downstream.FINANCIAL,
+                                () -> financialClient.getFinancialInfoByCustomerIds(customerIds)),
+                        Map.of(), degradedSections));
+        CompletableFuture<Map<Integer, LoyaltyClientResponse>> loyaltyPointsCF = timing.sectionAsync(Downstream.LOYALTY,
+                () -> downstreamCalls.withinBudget(Downstream.LOYALTY, downstreamCalls.read(Downstream.LOYALTY,
+                                () -> loyaltyClient.getLoyaltyPointsByCustomerIds(customerIds)),
+                        Map.of(), degradedSections));
+
+        return timing.finish(CompletableFuture.allOf(customersCF, addressesCF, purchaseTransactionsCF, financialInfoCF, loyaltyPointsCF)
+                .thenApply(unusedVariable -> {
+                    Map<Integer, CustomerEntity> customers = customersCF.join().stream()
+                            .collect(Collectors.toMap(CustomerEntity::getId, customer -> customer));
+                    Map<Integer, Address> addresses = addressesCF.join();
+                    Map<Integer, Set<PurchaseTransaction>> purchaseTransactions = purchaseTransactionsCF.join();
+                    Map<Integer, Set<FinancialInfo>> financialInfo = financialInfoCF.join();
+                    Map<Integer, LoyaltyClientResponse> loyaltyPoints = loyaltyPointsCF.join();
+                    return customerIds.stream()
+                            .map(customers::get)
+                            .filter(Objects::nonNull)
+                            .map(customer -> {
+                                CustomerResponse customerResponse = CustomerResponse.valueOf(customer);
+                                Integer customerId = customer.getId();
+                                customerResponse.setAddressResponse(Optional.ofNullable(addresses.get(customerId))
+                                        .map(AddressResponse::valueOf)
+                                        .orElse(null));
+                                customerResponse.setPurchaseTransactions(Stream.ofNullable(purchaseTransactions.get(customerId))
+                                        .flatMap(Collection::stream)
+                                        .map(PurchaseTransactionResponse::valueOf)
+                                        .collect(Collectors.toList()));
+                                customerResponse.setFinancialResponses(Stream.ofNullable(financialInfo.get(customerId))
+                                        .flatMap(Collection::stream)
+                                        .map(FinancialResponse::valueOf)
+                                        .collect(Collectors.toList()));
+                                customerResponse.setLoyaltyResponse(Optional.ofNullable(loyaltyPoints.get(customerId))
+                                        .map(LoyaltyClientResponse::getPoints)
+                                        .map(LoyaltyResponse::new)
+                                        .orElse(null));
+                                return markDegraded(customerResponse, degradedSections);
+                            })
+                            .collect(Collectors.toList());
+                }));
+    }
+
+    private WriteOrchestration.Step<CustomerEntity> customerExists(Integer customerId) {
+        return downstreamCalls.<CustomerEntity>writeStep("customer", Downstream.REPOSITORY,
+                        () -> customerRepository.findById(customerId)
+                                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                        "Customer " + customerId + " not found")))
+                .maxAttempts(1)
+                .build();
+    }
+
+    private WriteOrchestration.Step<String> updatePhoneNumber(Integer customerId, String phoneNumber) {
+        return downstreamCalls.writeStep("phone-number", Downstream.REPOSITORY,
+                        () -> savePhoneNumber(customerId, phoneNumber))
+                .compensation(previousPhoneNumber -> savePhoneNumber(customerId, previousPhoneNumber))
+                .dependsOn("customer")
+                .build();
+    }
+
+    private WriteOrchestration.Step<Set<FinancialInfo>> updateFinancialInfo(Integer customerId,
+            Set<FinancialRequest> financialRequests) {
+        Set<FinancialInfo> financialInfo = financialRequests.stream()
+                .map(FinancialInfo::valueOf)
+                .collect(Collectors.toSet());
+        return downstreamCalls.writeStep("financial-info", Downstream.FINANCIAL,
+                        () -> financialClient.updateFinancialInfo(customerId, financialInfo))
+                .compensation(previousFinancialInfo -> {
+                    /* a customer without financial info before the update gets none back, not a null entry */
+                    if (previousFinancialInfo == null) {
+                        financialClient.deleteFinancialInfo(customerId);
+                    } else {
+                        financialClient.updateFinancialInfo(customerId, previousFinancialInfo);
+                    }
+                })
+                .dependsOn("customer")
+                .build();
+    }
+
+    private WriteOrchestration.Step<Address> updateAddress(Integer customerId, UpdateAddressRequest addressRequest) {
+        Supplier<Address> write = addressRequest == null
+                ? () -> addressClient.deleteAddressByCustomerId(customerId)
+                : () -> addressClient.updateAddressByCustomerId(customerId, Address.valueOf(addressRequest));
+        return downstreamCalls.writeStep("address", Downstream.ADDRESS, write)
+                .compensation(previousAddress -> {
+                    if (previousAddress == null) {
+                        addressClient.deleteAddressByCustomerId(customerId);
+                    } else {
+                        addressClient.updateAddressByCustomerId(customerId, previousAddress);
+                    }
+                })
+                .dependsOn("customer")
+                .build();
+    }
+
+    private String savePhoneNumber(Integer customerId, String phoneNumber) {
+        CustomerEntity customerEntity = customerRepository.findById(customerId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Customer " + customerId + " not found"));
+        String previousPhoneNumber = customerEntity.getPhoneNumber();
+        customerEntity.setPhoneNumber(phoneNumber);
+        customerRepository.save(customerEntity);
+        eventPublisher.publishEvent(new CustomerChangedEvent(customerId, Downstream.REPOSITORY));
+        return previousPhoneNumber;
+    }
+
+    private CompletableFuture<Optional<CustomerResponse>> fetchCustomer(Integer customerId) {
+        return downstreamCalls.readCoalesced(Downstream.REPOSITORY, flightKey(customerId),
+                        () -> customerRepository.findById(customerId),
+                        customer -> customer.map(entity -> entity.toBuilder().build()))
+                .thenApply(customer -> customer.map(CustomerResponse::valueOf));
+    }
+
+    private CompletableFuture<AddressResponse> fetchAddress(Integer customerId, Set<Downstream> degradedSections) {
+        CompletableFuture<AddressResponse> addressResponseCF = load(Downstream.ADDRESS, customerId,
+                clientBatchers.address(), () -> addressClient.getAddressByCustomerId(customerId).orElse(null),
+                address -> address == null ? null : address.toBuilder().build())
+                .thenApply(address -> Optional.ofNullable(address)
                         .map(AddressResponse::valueOf)
                         .orElse(null));
-        CompletableFuture<List<PurchaseTransactionResponse>> purchaseTransactionResponsesCF = CompletableFuture.supplyAsync(
-                () -> Stream.ofNullable(purchaseTransactionClient.getPurchaseTransactionsByCustomerId(customerId))
+        return downstreamCalls.withinBudget(Downstream.ADDRESS, addressResponseCF, null, degradedSections);
+    }
+
+    private CompletableFuture<List<PurchaseTransactionResponse>> fetchPurchaseTransactions(Integer customerId,
+            Set<Downstream> degradedSections) {
+        CompletableFuture<List<PurchaseTransactionResponse>> purchaseTransactionResponsesCF = load(
+                Downstream.PURCHASE_TRANSACTION, customerId, clientBatchers.purchaseTransaction(),
+                () -> purchaseTransactionClient.getPurchaseTransactionsByCustomerId(customerId),
+                purchaseTransactions -> copyAll(purchaseTransactions, transaction -> transaction.toBuilder().build()))
+                .thenApply(purchaseTransactions -> Stream.ofNullable(purchaseTransactions)
                         .flatMap(Collection::stream)
                         .map(PurchaseTransactionResponse::valueOf)
                         .collect(Collectors.toList()));
-        CompletableFuture<List<FinancialResponse>> financialResponsesCF = CompletableFuture.supplyAsync(
-                () -> Stream.ofNullable(financialClient.getFinancialInfoByCustomerId(customerId))
+        return downstreamCalls.withinBudget(Downstream.PURCHASE_TRANSACTION, purchaseTransactionResponsesCF, List.of(),
+                degradedSections);
+    }
+
+    private CompletableFuture<List<FinancialResponse>> fetchFinancialResponses(Integer customerId,
+            Set<Downstream> degradedSections) {
+        CompletableFuture<List<FinancialResponse>> financialResponsesCF = load(Downstream.FINANCIAL, customerId,
+                clientBatchers.financial(), () -> financialClient.getFinancialInfoByCustomerId(customerId),
+                financialInfo -> copyAll(financialInfo, info -> info.toBuilder().build()))
+                .thenApply(financialInfo -> Stream.ofNullable(financialInfo)
                         .flatMap(Collection::stream)
                         .map(FinancialResponse::valueOf)
                         .collect(Collectors.toList()));
-        CompletableFuture<LoyaltyResponse> loyaltyResponseCF = CompletableFuture.supplyAsync(
-                () -> loyaltyClient.getLoyaltyPointsByCustomerId(customerId)
+        return downstreamCalls.withinBudget(Downstream.FINANCIAL, financialResponsesCF, List.of(), degradedSections);
+    }
+
+    private CompletableFuture<LoyaltyResponse> fetchLoyalty(Integer customerId, Set<Downstream> degradedSections) {
+        CompletableFuture<LoyaltyResponse> loyaltyResponseCF = load(Downstream.LOYALTY, customerId,
+                clientBatchers.loyalty(), () -> loyaltyClient.getLoyaltyPointsByCustomerId(customerId).orElse(null),
+                loyalty -> loyalty == null ? null : new LoyaltyClientResponse(loyalty.getPoints()))
+                .thenApply(loyaltyClientResponse -> Optional.ofNullable(loyaltyClientResponse)
                         .map(LoyaltyClientResponse::getPoints)
                         .map(LoyaltyResponse::new)
                         .orElse(null));
-        CompletableFuture<Void> voidCompletableFuture = CompletableFuture.allOf(
-                customerResponseCF, addressResponseCF,
-                purchaseTransactionResponsesCF, financialResponsesCF, loyaltyResponseCF);
-        Optional<CustomerResponse> customerResponseOptional = customerResponseCF.join();
-        CompletableFuture<CustomerResponse> responseCF = voidCompletableFuture
-                .thenApply(unusedVariable -> {
-                            customerResponseOptional.ifPresent(cr -> {
-                                AddressResponse addressResponse = addressResponseCF.join();
-                                cr.setAddressResponse(addressResponse);
-
-                                List<PurchaseTransactionResponse> purchaseTransactionResponses = purchaseTransactionResponsesCF.join();
-                                cr.setPurchaseTransactions(purchaseTransactionResponses);
-
-                                List<FinancialResponse> financialResponses = financialResponsesCF.join();
-                                cr.setFinancialResponses(financialResponses);
-
-                                LoyaltyResponse loyaltyResponse = loyaltyResponseCF.join();
-                                cr.setLoyaltyResponse(loyaltyResponse);
-                            });
-                            return customerResponseOptional
-                                    .orElse(null);
-                        }
-                );
-        return responseCF;
+        return downstreamCalls.withinBudget(Downstream.LOYALTY, loyaltyResponseCF, null, degradedSections);
+    }
+
+    private <T> CompletableFuture<T> load(Downstream downstream, Integer customerId,
+            Optional<BatchingDispatcher<Integer, T>> batcher, Supplier<T> singleCall, UnaryOperator<T> copy) {
+        return downstreamCalls.coalesce(downstream, flightKey(customerId), () -> batcher
+                .map(dispatcher -> dispatcher.load(customerId))
+                .orElseGet(() -> downstreamCalls.read(downstream, singleCall)), copy);
+    }
+
+    /*
+     * Reads only share a call started under the same hot customer cache stamp. A read that starts after a change
+     * would otherwise join a call that started before it, and cache what the change replaced under the new stamp.
+     */
+    private FlightKey flightKey(Integer customerId) {
+        return new FlightKey(customerId, hotCustomerCache.stamp(customerId));
+    }
+
+    private static <T> Set<T> copyAll(Set<T> values, UnaryOperator<T> copy) {
+        return values == null ? null : values.stream().map(copy).collect(Collectors.toSet());
+    }
+
+    private CustomerResponse markDegraded(CustomerResponse customerResponse, Set<Downstream> degradedSections) {
+        if (!degradedSections.isEmpty()) {
+            customerResponse.setDegradedSections(EnumSet.copyOf(degradedSections));
+        }
+        return customerResponse;
+    }
+
+    /*
+     * A replace merged after earlier writes supersedes them; an update merged after a replace keeps it a replace.
+     */
+    private record CustomerWrite(UpdateCustomerRequest request, boolean replace) {
+
+        CustomerWrite mergedWith(CustomerWrite later) {
+            return later.replace() ? later : new CustomerWrite(request.mergedWith(later.request()), replace);
+        }
+    }
+
+    private record FlightKey(Integer customerId, long stamp) {
     }
 }
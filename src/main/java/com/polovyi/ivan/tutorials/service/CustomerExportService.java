@@ -0,0 +1,214 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.configuration.ExecutorSaturatedException;
+import com.polovyi.ivan.tutorials.configuration.ExportProperties;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.dto.ExportResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+public class CustomerExportService implements DisposableBean {
+
+    private final CustomerStreamService customerStreamService;
+    private final CustomerCompletableFeatureService customerCompletableFeatureService;
+    private final ExportProperties exportProperties;
+    private final ExecutorService exportExecutor;
+    private final Semaphore enrichmentPermits;
+
+    public CustomerExportService(CustomerStreamService customerStreamService,
+            CustomerCompletableFeatureService customerCompletableFeatureService, ExportProperties exportProperties) {
+        this.customerStreamService = customerStreamService;
+        this.customerCompletableFeatureService = customerCompletableFeatureService;
+        this.exportProperties = exportProperties;
+        this.exportExecutor = new ThreadPoolExecutor(exportProperties.getMaxRunningExports(),
+                exportProperties.getMaxRunningExports(), 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                new CustomizableThreadFactory("export-"), (runnable, executor) -> {
+                    throw new ExecutorSaturatedException("Too many exports are running");
+                });
+        this.enrichmentPermits = new Semaphore(exportProperties.getMaxInFlight());
+    }
+
+    /*
+     * Enrichments complete on the downstream pools, but only the calling thread writes: once `concurrency` customers
+     * are in flight it writes the next completed one before reading another row. Each enrichment also takes one of
+     * the `max-in-flight` permits shared by all exports, so exports never hold more than that many client calls per
+     * downstream. The first failed write ends the export, database iteration included, and is rethrown.
+     */
+    public ExportResponse export(OutputStream outputStream, int concurrency) {
+        log.info("Exporting enriched customers with {} customers in flight", concurrency);
+        long startTime = System.nanoTime();
+        ExportWriter writer = new ExportWriter(outputStream);
+        customerStreamService.forEachCustomer(customer -> {
+            writer.drainTo(concurrency - 1);
+            writer.add(customer.getId(),
+                    () -> customerCompletableFeatureService.enrichCustomer(CustomerResponse.valueOf(customer)));
+        });
+        writer.drainTo(0);
+        customerStreamService.flush(outputStream);
+        long durationMillis = (System.nanoTime() - startTime) / 1_000_000;
+        if (writer.degradedSections.isEmpty()) {
+            log.info("Exported {} customers in {} ms", writer.exported, durationMillis);
+        } else {
+            log.warn("Exported {} customers in {} ms, customers per degraded section {}", writer.exported,
+                    durationMillis, writer.degradedSections);
+        }
+        return new ExportResponse(null, writer.exported, durationMillis, writer.degradedSections);
+    }
+
+    public ResponseBodyEmitter exportToResponse(Integer requestedConcurrency) {
+        int concurrency = resolveConcurrency(requestedConcurrency);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(exportProperties.getTimeout().toMillis());
+        exportExecutor.execute(() -> {
+            try {
+                export(new EmitterOutputStream(emitter), concurrency);
+                emitter.complete();
+            } catch (Throwable failure) {
+                log.warn("The export to the response failed", failure);
+                emitter.completeWithError(failure);
+            }
+        });
+        return emitter;
+    }
+
+    public DeferredResult<ExportResponse> exportToFile(Integer requestedConcurrency) {
+        int concurrency = resolveConcurrency(requestedConcurrency);
+        DeferredResult<ExportResponse> result = new DeferredResult<>(exportProperties.getTimeout().toMillis());
+        exportExecutor.execute(() -> {
+            try {
+                result.setResult(exportToFile(concurrency));
+            } catch (Throwable failure) {
+                log.warn("The export to a file failed", failure);
+                result.setErrorResult(failure);
+            }
+        });
+        return result;
+    }
+
+    @SneakyThrows
+    private ExportResponse exportToFile(int concurrency) {
+        Files.createDirectories(exportProperties.getDirectory());
+        Path file = exportProperties.getDirectory().resolve("customers-" + System.currentTimeMillis() + ".ndjson");
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(file))) {
+            ExportResponse exportResponse = export(outputStream, concurrency);
+            exportResponse.setFile(file.toString());
+            return exportResponse;
+        }
+    }
+
+    public int resolveConcurrency(Integer requestedConcurrency) {
+        int concurrency = requestedConcurrency == null ? exportProperties.getDefaultConcurrency() : requestedConcurrency;
+        if (concurrency < 1 || concurrency > exportProperties.getMaxConcurrency()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "concurrency must be between 1 and " + exportProperties.getMaxConcurrency());
+        }
+        return concurrency;
+    }
+
+    @Override
+    public void destroy() {
+        exportExecutor.shutdownNow();
+    }
+
+    /*
+     * Owned by the exporting thread; the downstream pools only hand it completed customers through the queue.
+     */
+    @RequiredArgsConstructor
+    private class ExportWriter {
+
+        private final OutputStream outputStream;
+        private final BlockingQueue<Enriched> completed = new LinkedBlockingQueue<>();
+        private final Map<Downstream, Long> degradedSections = new EnumMap<>(Downstream.class);
+        private int inFlight;
+        private long exported;
+
+        @SneakyThrows
+        void add(Integer customerId, Supplier<CompletableFuture<CustomerResponse>> enrichment) {
+            enrichmentPermits.acquire();
+            CompletableFuture<CustomerResponse> enriched;
+            try {
+                enriched = enrichment.get();
+            } catch (RuntimeException failure) {
+                enrichmentPermits.release();
+                throw failure;
+            }
+            inFlight++;
+            enriched.whenComplete((customerResponse, failure) -> {
+                enrichmentPermits.release();
+                completed.add(new Enriched(customerId, customerResponse, failure));
+            });
+        }
+
+        @SneakyThrows
+        void drainTo(int maxInFlight) {
+            while (inFlight > maxInFlight) {
+                Enriched enriched = completed.take();
+                inFlight--;
+                if (enriched.failure() != null) {
+                    log.warn("Skipping customer {} in the export", enriched.customerId(), enriched.failure());
+                    continue;
+                }
+                customerStreamService.writeLine(outputStream, enriched.customerResponse());
+                exported++;
+                if (enriched.customerResponse().getDegradedSections() != null) {
+                    enriched.customerResponse().getDegradedSections()
+                            .forEach(section -> degradedSections.merge(section, 1L, Long::sum));
+                }
+                /* flushed once nothing else is ready, so a slow export still reaches the client line by line */
+                if (completed.isEmpty()) {
+                    customerStreamService.flush(outputStream);
+                }
+            }
+        }
+    }
+
+    private record Enriched(Integer customerId, CustomerResponse customerResponse, Throwable failure) {
+    }
+
+    /*
+     * Sends what was written since the last flush as one chunk; a send after a timeout or a disconnect fails the
+     * export.
+     */
+    @RequiredArgsConstructor
+    private static class EmitterOutputStream extends ByteArrayOutputStream {
+
+        private final ResponseBodyEmitter emitter;
+
+        @Override
+        public void flush() throws IOException {
+            if (size() > 0) {
+                emitter.send(toByteArray(), MediaType.APPLICATION_NDJSON);
+                reset();
+            }
+        }
+    }
+}
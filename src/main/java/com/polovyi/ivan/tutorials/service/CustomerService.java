@@ -1,20 +1,31 @@
 package com.polovyi.ivan.tutorials.service;
 
 import com.polovyi.ivan.tutorials.client.AddressClient;
+import com.polovyi.ivan.tutorials.client.Downstream;
 import com.polovyi.ivan.tutorials.client.FinancialClient;
 import com.polovyi.ivan.tutorials.client.LoyaltyClient;
 import com.polovyi.ivan.tutorials.client.PurchaseTransactionClient;
+import com.polovyi.ivan.tutorials.concurrent.FanOutScope;
+import com.polovyi.ivan.tutorials.configuration.DownstreamExecutors;
 import com.polovyi.ivan.tutorials.dto.*;
+import com.polovyi.ivan.tutorials.entity.CustomerEntity;
+import com.polovyi.ivan.tutorials.event.CustomerChangedEvent;
 import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -24,7 +35,12 @@ public record CustomerService(CustomerRepository customerRepository,
                               AddressClient addressClient,
                               PurchaseTransactionClient purchaseTransactionClient,
                               FinancialClient financialClient,
-                              LoyaltyClient loyaltyClient) {
+                              LoyaltyClient loyaltyClient,
+                              DownstreamExecutors downstreamExecutors,
+                              RequestMetrics requestMetrics,
+                              ApplicationEventPublisher eventPublisher) {
+
+    private static final String SERVICE = "customer";
 
     public List<CustomerResponse> getAllCustomers() {
         log.info("Getting all customers");
@@ -33,90 +49,194 @@ public record CustomerService(CustomerRepository customerRepository,
                 .collect(Collectors.toList());
     }
 
-    public void replaceCustomer(Integer customerId, UpdateCustomerRequest request) {
-        log.info("Replacing customer", customerId);
-        LocalDateTime startTime = LocalDateTime.now();
-        customerRepository.findById(customerId)
-                .ifPresent(customerEntity -> {
-                    customerEntity.setPhoneNumber(request.getPhoneNumber());
-                    customerRepository.save(customerEntity);
-                });
-        Set<FinancialInfo> financialInfo = request.getFinancialInfo().stream()
-                .map(FinancialInfo::valueOf)
-                .collect(Collectors.toSet());
-        financialClient.updateFinancialInfo(customerId, financialInfo);
-
-        Address address = Address.valueOf(request.getAddress());
-        addressClient.updateAddressByCustomerId(customerId, address);
-        log.info("Customer updated successfully!");
-        log.info("Operation duration {} sec", Duration.between(startTime, LocalDateTime.now()).toSeconds());
+    public CustomerPage getCustomersPage(Integer afterId, int limit) {
+        log.info("Getting {} customers after id {}", limit, afterId);
+        /* one row past the page tells whether there is a next page, without a count query */
+        List<CustomerResponse> customers = customerRepository.findByIdGreaterThanOrderByIdAsc(
+                        afterId == null ? Integer.MIN_VALUE : afterId, PageRequest.of(0, limit + 1)).stream()
+                .map(CustomerResponse::valueOf)
+                .collect(Collectors.toList());
+        if (customers.size() <= limit) {
+            return new CustomerPage(customers, null);
+        }
+        List<CustomerResponse> page = customers.subList(0, limit);
+        return new CustomerPage(page, page.get(limit - 1).getId());
     }
 
-    public void updateCustomer(Integer customerId, UpdateCustomerRequest request) {
-        log.info("Updating customer", customerId);
-        LocalDateTime startTime = LocalDateTime.now();
-        if (request.getPhoneNumber() != null) {
-            log.info("Received a phone number, updating customer");
-            customerRepository.findById(customerId)
-                    .ifPresent(customerEntity -> {
-                        customerEntity.setPhoneNumber(request.getPhoneNumber());
-                        customerRepository.save(customerEntity);
-                    });
-        }
-        if (!CollectionUtils.isEmpty(request.getFinancialInfo())) {
-            log.info("Received a financial info, updating it");
+    public void replaceCustomer(Integer customerId, UpdateCustomerRequest request) {
+        log.info("Replacing customer", customerId);
+        RequestMetrics.Timing timing = requestMetrics.start(SERVICE, "replace-customer");
+        timing.finish(() -> {
+            timing.section(Downstream.REPOSITORY, () -> savePhoneNumber(customerId, request.getPhoneNumber()));
             Set<FinancialInfo> financialInfo = request.getFinancialInfo().stream()
                     .map(FinancialInfo::valueOf)
                     .collect(Collectors.toSet());
-            financialClient.updateFinancialInfo(customerId, financialInfo);
-        }
-        if (request.getAddress() != null) {
-            log.info("Received a address, updating it");
+            timing.section(Downstream.FINANCIAL, () -> financialClient.updateFinancialInfo(customerId, financialInfo));
+
             Address address = Address.valueOf(request.getAddress());
-            addressClient.updateAddressByCustomerId(customerId, address);
-        }
-        log.info("Customer updated successfully!");
-        log.info("Operation duration {} sec", Duration.between(startTime, LocalDateTime.now()).toSeconds());
+            timing.section(Downstream.ADDRESS, () -> addressClient.updateAddressByCustomerId(customerId, address));
+            log.info("Customer updated successfully!");
+        });
+    }
+
+    public void updateCustomer(Integer customerId, UpdateCustomerRequest request) {
+        log.info("Updating customer", customerId);
+        RequestMetrics.Timing timing = requestMetrics.start(SERVICE, "update-customer");
+        timing.finish(() -> {
+            if (request.getPhoneNumber() != null) {
+                log.info("Received a phone number, updating customer");
+                timing.section(Downstream.REPOSITORY, () -> savePhoneNumber(customerId, request.getPhoneNumber()));
+            }
+            if (!CollectionUtils.isEmpty(request.getFinancialInfo())) {
+                log.info("Received a financial info, updating it");
+                Set<FinancialInfo> financialInfo = request.getFinancialInfo().stream()
+                        .map(FinancialInfo::valueOf)
+                        .collect(Collectors.toSet());
+                timing.section(Downstream.FINANCIAL,
+                        () -> financialClient.updateFinancialInfo(customerId, financialInfo));
+            }
+            if (request.getAddress() != null) {
+                log.info("Received a address, updating it");
+                Address address = Address.valueOf(request.getAddress());
+                timing.section(Downstream.ADDRESS, () -> addressClient.updateAddressByCustomerId(customerId, address));
+            }
+            log.info("Customer updated successfully!");
+        });
     }
 
     public CustomerResponse getCustomerById(Integer customerId) {
+        return getCustomerById(customerId, CustomerFields.ALL);
+    }
+
+    public CustomerResponse getCustomerById(Integer customerId, CustomerFields fields) {
         log.info("Getting customer by id {} ", customerId);
-        LocalDateTime startTime = LocalDateTime.now();
-        CustomerResponse customerResponse = customerRepository.findById(customerId)
+        RequestMetrics.Timing timing = requestMetrics.start(SERVICE, "get-customer");
+        Set<Downstream> degradedSections = ConcurrentHashMap.newKeySet();
+        return timing.finish(() -> timing.section(Downstream.REPOSITORY, () -> customerRepository.findById(customerId))
                 .map(CustomerResponse::valueOf)
-                .map(this::fetchCustomerInfo)
-                .orElse(null);
-        log.info("Operation duration {} sec", Duration.between(startTime, LocalDateTime.now()).toSeconds());
+                .map(customerResponse -> fetchCustomerInfo(customerResponse, fields, timing, degradedSections))
+                .map(fields::project)
+                .map(customerResponse -> markDegraded(customerResponse, degradedSections))
+                .orElse(null));
+    }
+
+    private CustomerResponse fetchCustomerInfo(CustomerResponse customerResponse, CustomerFields fields,
+            RequestMetrics.Timing timing, Set<Downstream> degradedSections) {
+        if (downstreamExecutors.isVirtual()) {
+            return fetchCustomerInfoConcurrently(customerResponse, fields, timing, degradedSections);
+        }
+        Integer customerId = customerResponse.getId();
+        if (fields.includes(Downstream.ADDRESS)) {
+            customerResponse.setAddressResponse(section(timing, Downstream.ADDRESS, () -> fetchAddress(customerId),
+                    degradedSections));
+        }
+        if (fields.includes(Downstream.PURCHASE_TRANSACTION)) {
+            customerResponse.setPurchaseTransactions(section(timing, Downstream.PURCHASE_TRANSACTION,
+                    () -> fetchPurchaseTransactions(customerId), degradedSections));
+        }
+        if (fields.includes(Downstream.FINANCIAL)) {
+            customerResponse.setFinancialResponses(section(timing, Downstream.FINANCIAL,
+                    () -> fetchFinancialResponses(customerId), degradedSections));
+        }
+        if (fields.includes(Downstream.LOYALTY)) {
+            customerResponse.setLoyaltyResponse(section(timing, Downstream.LOYALTY, () -> fetchLoyalty(customerId),
+                    degradedSections));
+        }
         return customerResponse;
     }
 
-    private CustomerResponse fetchCustomerInfo(CustomerResponse customerResponse) {
+    @SneakyThrows
+    private CustomerResponse fetchCustomerInfoConcurrently(CustomerResponse customerResponse, CustomerFields fields,
+            RequestMetrics.Timing timing, Set<Downstream> degradedSections) {
         Integer customerId = customerResponse.getId();
-        AddressResponse addressResponse = addressClient.getAddressByCustomerId(customerId)
+        try (FanOutScope scope = new FanOutScope()) {
+            Supplier<AddressResponse> addressResponse = fork(scope, fields, timing, Downstream.ADDRESS,
+                    () -> fetchAddress(customerId), degradedSections);
+            Supplier<List<PurchaseTransactionResponse>> purchaseTransactionResponses = fork(scope, fields, timing,
+                    Downstream.PURCHASE_TRANSACTION, () -> fetchPurchaseTransactions(customerId), degradedSections);
+            Supplier<List<FinancialResponse>> financialResponses = fork(scope, fields, timing, Downstream.FINANCIAL,
+                    () -> fetchFinancialResponses(customerId), degradedSections);
+            Supplier<LoyaltyResponse> loyaltyResponse = fork(scope, fields, timing, Downstream.LOYALTY,
+                    () -> fetchLoyalty(customerId), degradedSections);
+            scope.join();
+
+            customerResponse.setAddressResponse(addressResponse.get());
+            customerResponse.setPurchaseTransactions(purchaseTransactionResponses.get());
+            customerResponse.setFinancialResponses(financialResponses.get());
+            customerResponse.setLoyaltyResponse(loyaltyResponse.get());
+            return customerResponse;
+        }
+    }
+
+    private <T> Supplier<T> fork(FanOutScope scope, CustomerFields fields, RequestMetrics.Timing timing,
+            Downstream downstream, Supplier<T> call, Set<Downstream> degradedSections) {
+        if (!fields.includes(downstream)) {
+            return () -> null;
+        }
+        return scope.fork(downstreamExecutors.get(downstream),
+                () -> section(timing, downstream, call, degradedSections));
+    }
+
+    /*
+     * A downstream that refuses the call (open circuit, full bulkhead) leaves its section empty instead of failing the
+     * whole customer; any other failure still propagates.
+     */
+    private <T> T section(RequestMetrics.Timing timing, Downstream downstream, Supplier<T> call,
+            Set<Downstream> degradedSections) {
+        try {
+            return timing.section(downstream, call);
+        } catch (ResponseStatusException refused) {
+            if (refused.getStatus() != HttpStatus.SERVICE_UNAVAILABLE) {
+                throw refused;
+            }
+            log.warn("{}, returning a degraded response", refused.getReason());
+            degradedSections.add(downstream);
+            return null;
+        }
+    }
+
+    private CustomerResponse markDegraded(CustomerResponse customerResponse, Set<Downstream> degradedSections) {
+        if (!degradedSections.isEmpty()) {
+            customerResponse.setDegradedSections(EnumSet.copyOf(degradedSections));
+        }
+        return customerResponse;
+    }
+
+    private CustomerEntity savePhoneNumber(Integer customerId, String phoneNumber) {
+        return customerRepository.findById(customerId)
+                .map(customerEntity -> {
+                    customerEntity.setPhoneNumber(phoneNumber);
+                    CustomerEntity saved = customerRepository.save(customerEntity);
+                    eventPublisher.publishEvent(new CustomerChangedEvent(customerId, Downstream.REPOSITORY));
+                    return saved;
+                })
+                .orElse(null);
+    }
+
+    private AddressResponse fetchAddress(Integer customerId) {
+        return addressClient.getAddressByCustomerId(customerId)
                 .map(AddressResponse::valueOf)
                 .orElse(null);
+    }
 
-        List<PurchaseTransactionResponse> purchaseTransactionResponses = Stream.ofNullable(
-                        purchaseTransactionClient.getPurchaseTransactionsByCustomerId(customerId))
+    private List<PurchaseTransactionResponse> fetchPurchaseTransactions(Integer customerId) {
+        return Stream.ofNullable(purchaseTransactionClient.getPurchaseTransactionsByCustomerId(customerId))
                 .flatMap(Collection::stream)
                 .map(PurchaseTransactionResponse::valueOf)
                 .collect(Collectors.toList());
+    }
 
-        List<FinancialResponse> financialResponses = Stream.ofNullable(
-                        financialClient.getFinancialInfoByCustomerId(customerId))
+    private List<FinancialResponse> fetchFinancialResponses(Integer customerId) {
+        return Stream.ofNullable(financialClient.getFinancialInfoByCustomerId(customerId))
                 .flatMap(Collection::stream)
                 .map(FinancialResponse::valueOf)
                 .collect(Collectors.toList());
+    }
 
-        LoyaltyResponse loyaltyResponse = loyaltyClient.getLoyaltyPointsByCustomerId(customerId)
+    private LoyaltyResponse fetchLoyalty(Integer customerId) {
+        return loyaltyClient.getLoyaltyPointsByCustomerId(customerId)
                 .map(LoyaltyClientResponse::getPoints)
                 .map(LoyaltyResponse::new)
                 .orElse(null);
-
-        customerResponse.setAddressResponse(addressResponse);
-        customerResponse.setPurchaseTransactions(purchaseTransactionResponses);
-        customerResponse.setFinancialResponses(financialResponses);
-        customerResponse.setLoyaltyResponse(loyaltyResponse);
-        return customerResponse;
     }
 }
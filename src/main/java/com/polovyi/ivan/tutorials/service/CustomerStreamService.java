@@ -0,0 +1,65 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.entity.CustomerEntity;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CustomerStreamService {
+
+    private static final int FLUSH_EVERY = 100;
+
+    private final CustomerRepository customerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public void streamCustomers(OutputStream outputStream) {
+        log.info("Streaming all customers");
+        AtomicLong written = new AtomicLong();
+        forEachCustomer(customer -> {
+            writeLine(outputStream, CustomerResponse.valueOf(customer));
+            if (written.incrementAndGet() % FLUSH_EVERY == 0) {
+                flush(outputStream);
+            }
+        });
+        flush(outputStream);
+        log.info("Streamed {} customers", written.get());
+    }
+
+    public void forEachCustomer(Consumer<CustomerEntity> consumer) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<CustomerEntity> customers = customerRepository.streamAll()) {
+                customers.forEach(customer -> {
+                    entityManager.detach(customer);
+                    consumer.accept(customer);
+                });
+            }
+        });
+    }
+
+    @SneakyThrows
+    void writeLine(OutputStream outputStream, Object value) {
+        outputStream.write(objectMapper.writeValueAsBytes(value));
+        outputStream.write('\n');
+    }
+
+    @SneakyThrows
+    void flush(OutputStream outputStream) {
+        outputStream.flush();
+    }
+}
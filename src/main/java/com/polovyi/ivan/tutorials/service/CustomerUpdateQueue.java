@@ -0,0 +1,196 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polovyi.ivan.tutorials.configuration.WriteBehindProperties;
+import com.polovyi.ivan.tutorials.dto.CustomerUpdateResponse;
+import com.polovyi.ivan.tutorials.dto.UpdateCustomerRequest;
+import com.polovyi.ivan.tutorials.entity.CustomerUpdateEntity;
+import com.polovyi.ivan.tutorials.entity.CustomerUpdateStatus;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import com.polovyi.ivan.tutorials.repository.CustomerUpdateRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+ * Write-behind for PATCH: updates are persisted as PENDING rows and acknowledged at once, then a poller hands
+ * them to at most `workers` customers at a time. All pending updates of a customer are merged, in arrival
+ * order, into one write, and a customer never has two writes in flight. Every database access, outcomes
+ * included, happens on the poller thread; an empty queue is polled less and less often, up to `max-idle-interval`.
+ * The queue is only as durable as the datasource: with the default in-memory H2 pending updates are lost on exit.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CustomerUpdateQueue implements DisposableBean {
+
+    private final CustomerUpdateRepository customerUpdateRepository;
+    private final CustomerRepository customerRepository;
+    private final CustomerCompletableFeatureService customerCompletableFeatureService;
+    private final WriteBehindProperties writeBehindProperties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Set<Integer> customersInFlight = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+            new CustomizableThreadFactory("write-behind-"));
+    private long idleDelay;
+
+    public boolean isEnabled() {
+        return writeBehindProperties.isEnabled();
+    }
+
+    @SneakyThrows
+    public CustomerUpdateResponse enqueue(Integer customerId, UpdateCustomerRequest request) {
+        if (!request.hasChanges()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nothing to update");
+        }
+        if (!customerRepository.existsById(customerId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer " + customerId + " not found");
+        }
+        CustomerUpdateEntity update = customerUpdateRepository.save(CustomerUpdateEntity.builder()
+                .customerId(customerId)
+                .payload(objectMapper.writeValueAsString(request))
+                .status(CustomerUpdateStatus.PENDING)
+                .createdAt(Instant.now())
+                .build());
+        meterRegistry.counter("write-behind.enqueued").increment();
+        log.info("Queued update {} for customer {}", update.getId(), customerId);
+        return CustomerUpdateResponse.valueOf(update);
+    }
+
+    public CustomerUpdateResponse getUpdate(Long updateId) {
+        return customerUpdateRepository.findById(updateId)
+                .map(CustomerUpdateResponse::valueOf)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Update " + updateId + " not found"));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        int recovered = customerUpdateRepository.updateStatus(CustomerUpdateStatus.IN_PROGRESS,
+                CustomerUpdateStatus.PENDING);
+        if (recovered > 0) {
+            log.info("Re-queued {} updates that were in progress at shutdown", recovered);
+        }
+        poller.schedule(this::poll, writeBehindProperties.getPollInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        poller.shutdownNow();
+    }
+
+    private void poll() {
+        boolean busy = drain();
+        long pollInterval = writeBehindProperties.getPollInterval().toMillis();
+        long maxIdleInterval = writeBehindProperties.getMaxIdleInterval().toMillis();
+        idleDelay = busy ? pollInterval : Math.min(Math.max(idleDelay, pollInterval) * 2, maxIdleInterval);
+        poller.schedule(this::poll, idleDelay, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * Returns whether there was anything to do, customers still in flight included.
+     */
+    boolean drain() {
+        try {
+            int capacity = writeBehindProperties.getWorkers() - customersInFlight.size();
+            if (capacity <= 0) {
+                return true;
+            }
+            Map<Integer, List<CustomerUpdateEntity>> pendingByCustomer = customerUpdateRepository
+                    .findPendingOfIdleCustomers(CustomerUpdateStatus.PENDING, CustomerUpdateStatus.IN_PROGRESS,
+                            PageRequest.of(0, writeBehindProperties.getBatchSize()))
+                    .stream()
+                    .collect(Collectors.groupingBy(CustomerUpdateEntity::getCustomerId, LinkedHashMap::new,
+                            Collectors.toList()));
+            pendingByCustomer.entrySet().stream()
+                    .limit(capacity)
+                    .forEach(pending -> apply(pending.getKey(), pending.getValue()));
+            return !pendingByCustomer.isEmpty() || !customersInFlight.isEmpty();
+        } catch (RuntimeException e) {
+            log.error("Failed to drain the write-behind queue", e);
+            return false;
+        }
+    }
+
+    private void apply(Integer customerId, List<CustomerUpdateEntity> updates) {
+        customersInFlight.add(customerId);
+        CompletableFuture<Void> write;
+        try {
+            updates.forEach(update -> {
+                update.setStatus(CustomerUpdateStatus.IN_PROGRESS);
+                update.setAttempts(update.getAttempts() + 1);
+            });
+            customerUpdateRepository.saveAll(updates);
+            UpdateCustomerRequest merged = updates.stream()
+                    .map(this::readPayload)
+                    .reduce(UpdateCustomerRequest::mergedWith)
+                    .orElseThrow();
+            meterRegistry.summary("write-behind.coalesced").record(updates.size());
+            log.info("Applying {} queued update(s) for customer {}", updates.size(), customerId);
+            write = customerCompletableFeatureService.updateCustomer(customerId, merged);
+        } catch (RuntimeException e) {
+            /* completed like any failed write, so the customer is released and its rows are retried or failed */
+            write = CompletableFuture.failedFuture(e);
+        }
+        write.whenCompleteAsync((unusedVariable, failure) -> {
+            try {
+                complete(updates, failure);
+            } finally {
+                customersInFlight.remove(customerId);
+            }
+        }, poller);
+    }
+
+    private void complete(List<CustomerUpdateEntity> updates, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        boolean retryable = !(cause instanceof ResponseStatusException responseStatusException
+                && responseStatusException.getStatus().is4xxClientError());
+        updates.forEach(update -> {
+            if (cause == null) {
+                update.setStatus(CustomerUpdateStatus.APPLIED);
+                update.setAppliedAt(Instant.now());
+                update.setError(null);
+            } else if (retryable && update.getAttempts() < writeBehindProperties.getMaxAttempts()) {
+                update.setStatus(CustomerUpdateStatus.PENDING);
+                update.setError(cause.getMessage());
+            } else {
+                update.setStatus(CustomerUpdateStatus.FAILED);
+                update.setError(cause.getMessage());
+            }
+        });
+        customerUpdateRepository.saveAll(updates);
+        meterRegistry.counter("write-behind.completed", "outcome", cause == null ? "applied" : "failed")
+                .increment(updates.size());
+    }
+
+    @SneakyThrows
+    private UpdateCustomerRequest readPayload(CustomerUpdateEntity update) {
+        return objectMapper.readValue(update.getPayload(), UpdateCustomerRequest.class);
+    }
+}
@@ -0,0 +1,159 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.polovyi.ivan.tutorials.configuration.WarmupProperties;
+import com.polovyi.ivan.tutorials.entity.CustomerEntity;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Keeps the hot customers in HotCustomerCache: once the data is loaded it preloads the configured hot set, then every
+ * `refresh-interval` reloads the top-k customers whose entry is missing or within `refresh-ahead` of expiring. At most
+ * `concurrency` customers are loaded at a time, so warming never takes over the downstream pools. A customer whose load
+ * is not cached (degraded, failed, or changed while loading) is retried after a delay that starts at `refresh-interval`
+ * and doubles up to `ttl`, so a downstream that keeps degrading it is not hit again on every refresh.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CustomerWarmup implements DisposableBean {
+
+    private final HotCustomerCache hotCustomerCache;
+    private final CustomerCompletableFeatureService customerCompletableFeatureService;
+    private final CustomerRepository customerRepository;
+    private final WarmupProperties warmupProperties;
+    private final MeterRegistry meterRegistry;
+    private final Set<Integer> customersInFlight = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Backoff> backoffs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            new CustomizableThreadFactory("warmup-"));
+    private Semaphore permits;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!hotCustomerCache.isEnabled()) {
+            return;
+        }
+        permits = new Semaphore(warmupProperties.getConcurrency());
+        scheduler.execute(this::preload);
+        long refreshInterval = warmupProperties.getRefreshInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    void preload() {
+        Set<Integer> customerIds = new LinkedHashSet<>(warmupProperties.getPreloadIds());
+        if (warmupProperties.getPreloadFirst() > 0) {
+            customerRepository.findByIdGreaterThanOrderByIdAsc(Integer.MIN_VALUE,
+                            PageRequest.of(0, warmupProperties.getPreloadFirst())).stream()
+                    .map(CustomerEntity::getId)
+                    .forEach(customerIds::add);
+        }
+        if (customerIds.isEmpty()) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        /* counted once, so they are refreshed until real traffic pushes them out of the top-k */
+        customerIds.forEach(hotCustomerCache::recordAccess);
+        warm(customerIds, "preload").thenRun(() -> log.info("Preloaded {} hot customers in {} ms",
+                customerIds.size(), Duration.ofNanos(System.nanoTime() - startTime).toMillis()));
+    }
+
+    void refresh() {
+        try {
+            List<Integer> hotCustomers = hotCustomerCache.hotCustomers();
+            backoffs.keySet().retainAll(new HashSet<>(hotCustomers));
+            long now = System.nanoTime();
+            warm(hotCustomers.stream()
+                    .filter(customerId -> !isBackingOff(customerId, now))
+                    .filter(hotCustomerCache::needsRefresh)
+                    .toList(), "refresh");
+        } catch (RuntimeException e) {
+            log.error("Failed to refresh the hot customers", e);
+        }
+    }
+
+    private CompletableFuture<Void> warm(Collection<Integer> customerIds, String reason) {
+        List<CompletableFuture<?>> loads = new ArrayList<>();
+        for (Integer customerId : customerIds) {
+            if (!customersInFlight.add(customerId)) {
+                continue;
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                customersInFlight.remove(customerId);
+                Thread.currentThread().interrupt();
+                break;
+            }
+            CompletableFuture<Boolean> load;
+            try {
+                load = customerCompletableFeatureService.warmCustomer(customerId);
+            } catch (RuntimeException e) {
+                load = CompletableFuture.failedFuture(e);
+            }
+            loads.add(load.whenComplete((cached, failure) -> {
+                permits.release();
+                customersInFlight.remove(customerId);
+                String outcome = failure != null ? "failure" : cached ? "cached" : "uncached";
+                meterRegistry.counter("warmup.loaded", "reason", reason, "outcome", outcome).increment();
+                if (failure == null && cached) {
+                    backoffs.remove(customerId);
+                    return;
+                }
+                Backoff backoff = backoffs.compute(customerId, (id, previous) -> Backoff.after(previous,
+                        warmupProperties.getRefreshInterval(), warmupProperties.getTtl()));
+                if (failure != null) {
+                    log.warn("Failed to warm customer {}, retrying in {} ms", customerId,
+                            backoff.delay().toMillis(), failure);
+                } else {
+                    log.info("Customer {} was loaded but not cached, retrying in {} ms", customerId,
+                            backoff.delay().toMillis());
+                }
+            }));
+        }
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).exceptionally(failure -> null);
+    }
+
+    private boolean isBackingOff(Integer customerId, long now) {
+        Backoff backoff = backoffs.get(customerId);
+        return backoff != null && now - backoff.retryAt() < 0;
+    }
+
+    private record Backoff(Duration delay, long retryAt) {
+
+        static Backoff after(Backoff previous, Duration initialDelay, Duration maxDelay) {
+            Duration delay = previous == null ? initialDelay : previous.delay().multipliedBy(2);
+            if (delay.compareTo(maxDelay) > 0) {
+                delay = maxDelay;
+            }
+            return new Backoff(delay, System.nanoTime() + delay.toNanos());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.concurrent.AdaptiveLimiter;
+import com.polovyi.ivan.tutorials.concurrent.InterruptibleFuture;
+import com.polovyi.ivan.tutorials.concurrent.KeyedWriteCoalescer;
+import com.polovyi.ivan.tutorials.concurrent.SingleFlight;
+import com.polovyi.ivan.tutorials.concurrent.Tracing;
+import com.polovyi.ivan.tutorials.concurrent.WriteOrchestration;
+import com.polovyi.ivan.tutorials.configuration.DownstreamExecutors;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+@Slf4j
+@Component
+public class DownstreamCalls {
+
+    private final DownstreamExecutors downstreamExecutors;
+    private final DownstreamProperties downstreamProperties;
+    private final MeterRegistry meterRegistry;
+    private final Map<Downstream, SingleFlight<Object, Object>> singleFlights = new EnumMap<>(Downstream.class);
+    private final Map<Downstream, AdaptiveLimiter> limiters = new EnumMap<>(Downstream.class);
+
+    public DownstreamCalls(DownstreamExecutors downstreamExecutors, DownstreamProperties downstreamProperties,
+            MeterRegistry meterRegistry) {
+        this.downstreamExecutors = downstreamExecutors;
+        this.downstreamProperties = downstreamProperties;
+        this.meterRegistry = meterRegistry;
+        for (Downstream downstream : Downstream.values()) {
+            singleFlights.put(downstream, new SingleFlight<>(downstream.key(), meterRegistry));
+            DownstreamProperties.Limit limit = downstreamProperties.client(downstream).getLimit();
+            if (limit.isEnabled()) {
+                AdaptiveLimiter limiter = new AdaptiveLimiter(downstream.key(), limit.getInitialLimit(),
+                        limit.getMinLimit(), limit.getMaxLimit(), limit.getTolerance());
+                limiter.bindTo(meterRegistry);
+                limiters.put(downstream, limiter);
+            }
+        }
+    }
+
+    /*
+     * Over the downstream's concurrency limit, or with its executor saturated, the call fails at once with 503 instead
+     * of joining the executor queue; reads wrapped in withinBudget then degrade their section.
+     */
+    public <T> CompletableFuture<T> supply(Downstream downstream, Supplier<T> supplier) {
+        AdaptiveLimiter limiter = limiters.get(downstream);
+        Optional<AdaptiveLimiter.Permit> permit = limiter == null ? Optional.empty() : limiter.tryAcquire();
+        if (limiter != null && permit.isEmpty()) {
+            return CompletableFuture.failedFuture(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    downstream + " is over its concurrency limit of " + limiter.getLimit()));
+        }
+        InterruptibleFuture<T> call = limited(new InterruptibleFuture<>(supplier), permit);
+        try {
+            downstreamExecutors.get(downstream).execute(call);
+        } catch (RejectedExecutionException rejected) {
+            call.completeExceptionally(rejected);
+        }
+        return call;
+    }
+
+    private static <T> InterruptibleFuture<T> limited(InterruptibleFuture<T> call,
+            Optional<AdaptiveLimiter.Permit> permit) {
+        permit.ifPresent(limit -> call.whenComplete((value, failure) -> {
+            if (failure == null) {
+                limit.onSuccess();
+            } else if (isRefusal(failure) || failure instanceof CancellationException) {
+                /* refused by the client's circuit breaker or bulkhead, or a losing hedge: says nothing about load */
+                limit.onIgnore();
+            } else {
+                limit.onDropped();
+            }
+        }));
+        return call;
+    }
+
+    public CompletableFuture<Void> run(Downstream downstream, Runnable runnable) {
+        try {
+            return CompletableFuture.runAsync(runnable, downstreamExecutors.get(downstream));
+        } catch (RejectedExecutionException rejected) {
+            return CompletableFuture.failedFuture(rejected);
+        }
+    }
+
+    public WriteOrchestration orchestration(String name) {
+        return new WriteOrchestration(name, meterRegistry);
+    }
+
+    public <T> WriteOrchestration.Step.StepBuilder<T> writeStep(String name, Downstream downstream, Supplier<T> action) {
+        DownstreamProperties.Retry retry = downstreamProperties.client(downstream).getRetry();
+        return WriteOrchestration.Step.<T>builder()
+                .name(name)
+                .executor(downstreamExecutors.get(downstream))
+                .action(action)
+                .maxAttempts(retry.getMaxAttempts())
+                .backoff(retry.getBackoff());
+    }
+
+    public <K, V> KeyedWriteCoalescer<K, V> writeCoalescer(String name, BinaryOperator<V> merge,
+            BiFunction<K, V, CompletableFuture<Void>> writer) {
+        KeyedWriteCoalescer<K, V> coalescer = new KeyedWriteCoalescer<>(name, merge, writer);
+        coalescer.bindTo(meterRegistry);
+        return coalescer;
+    }
+
+    /*
+     * A read bounded by the downstream's budget: once it expires the call is interrupted rather than left to finish.
+     * With a hedge delay, a second attempt starts if the first has not answered in time; the first answer wins and
+     * the other attempt is cancelled.
+     */
+    public <T> CompletableFuture<T> read(Downstream downstream, Supplier<T> supplier) {
+        DownstreamProperties.Client client = downstreamProperties.client(downstream);
+        CompletableFuture<T> result = client.getHedgeDelay() == null
+                ? supply(downstream, supplier)
+                : hedged(downstream, supplier, client.getHedgeDelay());
+        return client.getTimeout() == null
+                ? result
+                : result.orTimeout(client.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private <T> CompletableFuture<T> hedged(Downstream downstream, Supplier<T> supplier, Duration hedgeDelay) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger attempts = new AtomicInteger(1);
+        BiConsumer<T, Throwable> settle = (value, failure) -> {
+            if (failure == null) {
+                result.complete(value);
+            } else if (attempts.decrementAndGet() == 0) {
+                result.completeExceptionally(failure);
+            }
+        };
+        CompletableFuture<T> first = supply(downstream, supplier);
+        result.whenComplete((value, failure) -> first.cancel(true));
+        first.whenComplete(settle);
+        Executor delayed = Tracing.propagating(CompletableFuture.delayedExecutor(hedgeDelay.toMillis(),
+                TimeUnit.MILLISECONDS, downstreamExecutors.get(downstream)));
+        delayed.execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            AdaptiveLimiter limiter = limiters.get(downstream);
+            Optional<AdaptiveLimiter.Permit> permit = limiter == null ? Optional.empty() : limiter.tryAcquire();
+            if (limiter != null && permit.isEmpty()) {
+                log.info("No {} response after {} ms, but it is at its concurrency limit, not hedging", downstream,
+                        hedgeDelay.toMillis());
+                return;
+            }
+            attempts.incrementAndGet();
+            log.info("No {} response after {} ms, sending a hedged request", downstream, hedgeDelay.toMillis());
+            meterRegistry.counter("downstream.hedged", "downstream", downstream.name()).increment();
+            /* runs on this pool thread, but as a future of its own so that the first answer can cancel it */
+            InterruptibleFuture<T> hedge = limited(new InterruptibleFuture<>(supplier), permit);
+            result.whenComplete((value, failure) -> hedge.cancel(true));
+            hedge.whenComplete(settle);
+            hedge.run();
+        });
+        return result;
+    }
+
+    public <T> CompletableFuture<T> readCoalesced(Downstream downstream, Object key, Supplier<T> supplier,
+            UnaryOperator<T> copy) {
+        return coalesce(downstream, key, () -> read(downstream, supplier), copy);
+    }
+
+    /*
+     * Concurrent reads of the same key share one call; each caller gets its own `copy` of the response.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> coalesce(Downstream downstream, Object key, Supplier<CompletableFuture<T>> call,
+            UnaryOperator<T> copy) {
+        if (!downstreamProperties.isCoalesceReads()) {
+            return call.get();
+        }
+        SingleFlight<Object, T> singleFlight = (SingleFlight<Object, T>) (SingleFlight<?, ?>) singleFlights.get(downstream);
+        return singleFlight.execute(key, call, copy);
+    }
+
+    public <T> CompletableFuture<T> withinBudget(Downstream downstream, CompletableFuture<T> call, T fallback,
+            Set<Downstream> degradedSections) {
+        Duration timeout = downstreamProperties.client(downstream).getTimeout();
+        CompletableFuture<T> budgeted = timeout == null ? call : call.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        return budgeted.exceptionally(failure -> {
+            Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+            if (timeout != null && cause instanceof TimeoutException) {
+                log.warn("{} missed its {} ms budget, returning a degraded response", downstream, timeout.toMillis());
+            } else if (isRefusal(cause)) {
+                log.warn("{}, returning a degraded response", ((ResponseStatusException) cause).getReason());
+            } else {
+                log.warn("{} failed, returning a degraded response", downstream, cause);
+            }
+            meterRegistry.counter("downstream.degraded", "downstream", downstream.name()).increment();
+            degradedSections.add(downstream);
+            return fallback;
+        });
+    }
+
+    private static boolean isRefusal(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        return cause instanceof ResponseStatusException refused
+                && refused.getStatus() == HttpStatus.SERVICE_UNAVAILABLE;
+    }
+}
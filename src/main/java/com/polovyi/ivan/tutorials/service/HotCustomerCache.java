@@ -0,0 +1,151 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.polovyi.ivan.tutorials.concurrent.HotKeys;
+import com.polovyi.ivan.tutorials.configuration.WarmupProperties;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.event.CustomerChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import it.unimi.dsi.fastutil.HashCommon;
+import lombok.SneakyThrows;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Fully assembled customers, kept for the customers that are read the most. Reads are counted in HotKeys; the entries
+ * of the top-k are refreshed by CustomerWarmup before they expire, so a hot customer is never a cold call.
+ * With `serialized-view` each entry also holds the customer's JSON, written once when it is cached, so a full read is
+ * a lookup and a byte copy. Any CustomerChangedEvent drops the customer; the next read or refresh rebuilds it.
+ */
+@Component
+public class HotCustomerCache {
+
+    private static final int STAMP_STRIPES = 1024;
+
+    private final WarmupProperties warmupProperties;
+    private final HotKeys hotKeys;
+    private final ObjectMapper objectMapper;
+    private final Cache<Integer, HotCustomer> customers;
+    private final AtomicLongArray invalidations = new AtomicLongArray(STAMP_STRIPES);
+
+    public HotCustomerCache(WarmupProperties warmupProperties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.warmupProperties = warmupProperties;
+        this.objectMapper = objectMapper;
+        this.hotKeys = new HotKeys(warmupProperties.getTopK(), warmupProperties.getExpectedCustomers());
+        this.customers = Caffeine.newBuilder()
+                .expireAfterWrite(warmupProperties.getTtl())
+                .maximumSize(warmupProperties.getMaximumSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, customers, "hot-customers");
+    }
+
+    public boolean isEnabled() {
+        return warmupProperties.isEnabled();
+    }
+
+    public void recordAccess(Integer customerId) {
+        if (isEnabled()) {
+            hotKeys.record(customerId);
+        }
+    }
+
+    /*
+     * A copy, so projecting it for fields= leaves the cached customer whole; the lists it shares with the cached one
+     * are immutable.
+     */
+    public Optional<CustomerResponse> get(Integer customerId) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(customers.getIfPresent(customerId))
+                .map(hotCustomer -> hotCustomer.customer().toBuilder().build());
+    }
+
+    public Optional<byte[]> getJson(Integer customerId) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(customers.getIfPresent(customerId))
+                .map(HotCustomer::json)
+                .map(json -> Arrays.copyOf(json, json.length));
+    }
+
+    /*
+     * Stamp to take before loading a customer: the result is only cached if the customer was not invalidated
+     * meanwhile, otherwise a load racing an update could put back what the update just replaced. Stamps are striped
+     * by customer, so an update only holds back the loads of customers sharing its stripe.
+     */
+    public long stamp(Integer customerId) {
+        return invalidations.get(stripe(customerId));
+    }
+
+    /*
+     * The stamp is checked inside the entry's compute, which invalidate() also goes through: the put either lands
+     * before the invalidation and is dropped by it, or sees the new stamp and is skipped. No read in between can get
+     * the customer as it was before the change, whether as an object or as JSON.
+     * Returns whether the customer was cached: a degraded customer is not, nor one changed since the stamp.
+     */
+    @SneakyThrows
+    public boolean put(Integer customerId, CustomerResponse customerResponse, long stamp) {
+        if (!isEnabled() || customerResponse == null || customerResponse.getDegradedSections() != null) {
+            return false;
+        }
+        byte[] json = warmupProperties.isSerializedView() ? objectMapper.writeValueAsBytes(customerResponse) : null;
+        HotCustomer hotCustomer = new HotCustomer(immutableCopy(customerResponse), json);
+        return customers.asMap().compute(customerId,
+                (id, existing) -> stamp(customerId) == stamp ? hotCustomer : existing) == hotCustomer;
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        invalidate(event.customerId());
+    }
+
+    private void invalidate(Integer customerId) {
+        customers.asMap().compute(customerId, (id, existing) -> {
+            invalidations.incrementAndGet(stripe(customerId));
+            return null;
+        });
+    }
+
+    private static int stripe(Integer customerId) {
+        return HashCommon.mix(customerId) & (STAMP_STRIPES - 1);
+    }
+
+    private static CustomerResponse immutableCopy(CustomerResponse customerResponse) {
+        return customerResponse.toBuilder()
+                .financialResponses(customerResponse.getFinancialResponses() == null ? null
+                        : List.copyOf(customerResponse.getFinancialResponses()))
+                .purchaseTransactions(customerResponse.getPurchaseTransactions() == null ? null
+                        : List.copyOf(customerResponse.getPurchaseTransactions()))
+                .build();
+    }
+
+    public List<Integer> hotCustomers() {
+        return hotKeys.top();
+    }
+
+    /*
+     * Absent, or close enough to its expiry that it should be reloaded now.
+     */
+    public boolean needsRefresh(Integer customerId) {
+        Duration refreshAfter = warmupProperties.getTtl().minus(warmupProperties.getRefreshAhead());
+        return customers.policy().expireAfterWrite()
+                .flatMap(expiration -> expiration.ageOf(customerId))
+                .map(age -> age.compareTo(refreshAfter) >= 0)
+                .orElse(true);
+    }
+
+    private record HotCustomer(CustomerResponse customer, byte[] json) {
+    }
+}
@@ -0,0 +1,130 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.client.ReactiveAddressClient;
+import com.polovyi.ivan.tutorials.client.ReactiveFinancialClient;
+import com.polovyi.ivan.tutorials.client.ReactiveLoyaltyClient;
+import com.polovyi.ivan.tutorials.client.ReactivePurchaseTransactionClient;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
+import com.polovyi.ivan.tutorials.dto.AddressResponse;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.dto.FinancialResponse;
+import com.polovyi.ivan.tutorials.dto.LoyaltyClientResponse;
+import com.polovyi.ivan.tutorials.dto.LoyaltyResponse;
+import com.polovyi.ivan.tutorials.dto.PurchaseTransactionResponse;
+import com.polovyi.ivan.tutorials.entity.CustomerEntity;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveCustomerService {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final CustomerRepository customerRepository;
+    private final ReactiveAddressClient addressClient;
+    private final ReactivePurchaseTransactionClient purchaseTransactionClient;
+    private final ReactiveFinancialClient financialClient;
+    private final ReactiveLoyaltyClient loyaltyClient;
+    private final DownstreamProperties downstreamProperties;
+    private final MeterRegistry meterRegistry;
+
+    /*
+     * Keyset pages are read one at a time as the client consumes them, so the table is never loaded as a whole.
+     */
+    public Flux<CustomerResponse> getAllCustomers() {
+        return customersAfter(Integer.MIN_VALUE)
+                .expand(page -> page.size() < PAGE_SIZE
+                        ? Mono.empty()
+                        : customersAfter(page.get(page.size() - 1).getId()))
+                .flatMapIterable(Function.identity())
+                .map(CustomerResponse::valueOf);
+    }
+
+    private Mono<List<CustomerEntity>> customersAfter(Integer afterId) {
+        return Mono.fromCallable(() -> customerRepository.findByIdGreaterThanOrderByIdAsc(afterId,
+                        PageRequest.of(0, PAGE_SIZE)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<CustomerResponse> getCustomerById(Integer customerId) {
+        log.info("Getting customer by id {} using Mono.zip(...)", customerId);
+        Set<Downstream> degradedSections = ConcurrentHashMap.newKeySet();
+        Mono<CustomerResponse> customerResponseMono = Mono.fromCallable(() -> customerRepository.findById(customerId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(Mono::justOrEmpty)
+                .map(CustomerResponse::valueOf);
+        Mono<Optional<AddressResponse>> addressResponseMono = withinBudget(Downstream.ADDRESS,
+                addressClient.getAddressByCustomerId(customerId)
+                        .map(AddressResponse::valueOf)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty()),
+                Optional.empty(), degradedSections);
+        Mono<List<PurchaseTransactionResponse>> purchaseTransactionResponsesMono = withinBudget(
+                Downstream.PURCHASE_TRANSACTION,
+                purchaseTransactionClient.getPurchaseTransactionsByCustomerId(customerId)
+                        .map(PurchaseTransactionResponse::valueOf)
+                        .collectList(),
+                List.of(), degradedSections);
+        Mono<List<FinancialResponse>> financialResponsesMono = withinBudget(Downstream.FINANCIAL,
+                financialClient.getFinancialInfoByCustomerId(customerId)
+                        .map(FinancialResponse::valueOf)
+                        .collectList(),
+                List.of(), degradedSections);
+        Mono<Optional<LoyaltyResponse>> loyaltyResponseMono = withinBudget(Downstream.LOYALTY,
+                loyaltyClient.getLoyaltyPointsByCustomerId(customerId)
+                        .map(LoyaltyClientResponse::getPoints)
+                        .map(LoyaltyResponse::new)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty()),
+                Optional.empty(), degradedSections);
+
+        return Mono.zip(customerResponseMono, addressResponseMono, purchaseTransactionResponsesMono,
+                        financialResponsesMono, loyaltyResponseMono)
+                .map(sections -> {
+                    CustomerResponse customerResponse = sections.getT1();
+                    customerResponse.setAddressResponse(sections.getT2().orElse(null));
+                    customerResponse.setPurchaseTransactions(sections.getT3());
+                    customerResponse.setFinancialResponses(sections.getT4());
+                    customerResponse.setLoyaltyResponse(sections.getT5().orElse(null));
+                    if (!degradedSections.isEmpty()) {
+                        customerResponse.setDegradedSections(EnumSet.copyOf(degradedSections));
+                    }
+                    return customerResponse;
+                })
+                .doOnCancel(() -> log.info("Request for customer {} cancelled, downstream calls stopped", customerId));
+    }
+
+    private <T> Mono<T> withinBudget(Downstream downstream, Mono<T> call, T fallback, Set<Downstream> degradedSections) {
+        Duration timeout = downstreamProperties.client(downstream).getTimeout();
+        Mono<T> budgeted = timeout == null ? call : call.timeout(timeout);
+        return budgeted.onErrorResume(failure -> {
+            if (timeout != null && failure instanceof TimeoutException) {
+                log.warn("{} missed its {} ms budget, returning a degraded response", downstream, timeout.toMillis());
+            } else {
+                log.warn("{} failed, returning a degraded response", downstream, failure);
+            }
+            meterRegistry.counter("downstream.degraded", "downstream", downstream.name()).increment();
+            degradedSections.add(downstream);
+            return Mono.just(fallback);
+        });
+    }
+}
@@ -0,0 +1,146 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.concurrent.Span;
+import com.polovyi.ivan.tutorials.concurrent.Tracing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/*
+ * customer.request times a service call end to end and customer.request.active counts the ones in flight.
+ * Each section (one downstream) is timed from the moment it is requested until its result is available, and the
+ * slowest section of a request is counted as its critical path: for a concurrent fan-out it alone bounds the latency.
+ * The request and each of its sections are spans as well, children of the current span if there is one.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RequestMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public Timing start(String service, String operation) {
+        LongTaskTimer.Sample active = LongTaskTimer.builder("customer.request.active")
+                .description("Customer service requests in flight")
+                .tag("service", service)
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .start();
+        String name = service + " " + operation;
+        Span span = Tracing.startChild(name).orElseGet(() -> Span.root(name));
+        return new Timing(service, operation, active, span, System.nanoTime());
+    }
+
+    @RequiredArgsConstructor
+    public class Timing {
+
+        private final String service;
+        private final String operation;
+        private final LongTaskTimer.Sample active;
+        private final Span span;
+        private final long startTime;
+        private final Map<Downstream, Long> sections = new ConcurrentHashMap<>();
+
+        public <T> T section(Downstream downstream, Supplier<T> call) {
+            Span section = span.child(downstream.name());
+            try (Tracing.Scope scope = section.makeCurrent()) {
+                return call.get();
+            } finally {
+                section.end();
+                sections.put(downstream, section.durationNanos());
+            }
+        }
+
+        /*
+         * The section span is current while the call is started, so the stages it submits to propagating executors
+         * run in it; it ends when the returned future completes.
+         */
+        public <T> CompletableFuture<T> sectionAsync(Downstream downstream, Supplier<CompletableFuture<T>> call) {
+            Span section = span.child(downstream.name());
+            CompletableFuture<T> future;
+            try (Tracing.Scope scope = section.makeCurrent()) {
+                future = call.get();
+            }
+            return future.whenComplete((value, failure) -> {
+                section.end();
+                sections.put(downstream, section.durationNanos());
+            });
+        }
+
+        public <T> T finish(Supplier<T> call) {
+            boolean success = false;
+            try {
+                T result = call.get();
+                success = true;
+                return result;
+            } finally {
+                finish(success);
+            }
+        }
+
+        public void finish(Runnable call) {
+            finish(() -> {
+                call.run();
+                return null;
+            });
+        }
+
+        public <T> CompletableFuture<T> finish(CompletableFuture<T> call) {
+            return call.whenComplete((value, failure) -> finish(failure == null));
+        }
+
+        private void finish(boolean success) {
+            active.stop();
+            span.end();
+            Duration duration = Duration.ofNanos(System.nanoTime() - startTime);
+            Timer.builder("customer.request")
+                    .description("Customer service requests, end to end")
+                    .tag("service", service)
+                    .tag("operation", operation)
+                    .tag("outcome", success ? "success" : "error")
+                    .register(meterRegistry)
+                    .record(duration);
+            if (sections.isEmpty()) {
+                return;
+            }
+            sections.forEach((downstream, nanos) -> Timer.builder("customer.request.section")
+                    .description("Time from requesting a section until its result was available")
+                    .tag("service", service)
+                    .tag("operation", operation)
+                    .tag("section", downstream.name())
+                    .register(meterRegistry)
+                    .record(Duration.ofNanos(nanos)));
+            Map.Entry<Downstream, Long> criticalPath = sections.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .orElseThrow();
+            Counter.builder("customer.request.critical.path")
+                    .description("Requests whose slowest section was this one")
+                    .tag("service", service)
+                    .tag("operation", operation)
+                    .tag("section", criticalPath.getKey().name())
+                    .register(meterRegistry)
+                    .increment();
+            if (log.isDebugEnabled()) {
+                log.debug("{} {} took {} ms, critical path {}, sections {}", service, operation, duration.toMillis(),
+                        criticalPath.getKey(), sections.entrySet().stream()
+                                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+                                .map(section -> section.getKey() + "="
+                                        + Duration.ofNanos(section.getValue()).toMillis() + "ms")
+                                .collect(Collectors.joining(", ")));
+            }
+        }
+    }
+}
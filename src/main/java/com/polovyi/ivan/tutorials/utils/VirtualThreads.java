@@ -0,0 +1,41 @@
+package com.polovyi.ivan.tutorials.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+public class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = lookupOfVirtual();
+
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    public static ThreadFactory factory(String prefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21+, running on " + Runtime.version());
+        }
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create a virtual thread factory", e);
+        }
+    }
+
+    public static Executor threadPerTaskExecutor(String prefix) {
+        ThreadFactory threadFactory = factory(prefix);
+        return command -> threadFactory.newThread(command).start();
+    }
+
+    private static Method lookupOfVirtual() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
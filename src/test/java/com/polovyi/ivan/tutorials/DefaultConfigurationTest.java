@@ -0,0 +1,79 @@
+package com.polovyi.ivan.tutorials;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.service.CustomerCompletableFeatureService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Runs against the shipped application.yaml and its simulated latencies, so a read takes seconds: the defaults
+ * must leave every section of an ordinary read intact, on both services, once the circuit breakers have a full window,
+ * and those reads must fill the hot customer cache's serialized view.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "reactive-server.port=0")
+class DefaultConfigurationTest {
+
+    /* more than the circuit breakers' minimum-calls, so they judge the calls made here */
+    private static final int CONCURRENT_READS = 12;
+    private static final int CUSTOMERS = 9;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private CustomerCompletableFeatureService customerCompletableFeatureService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void readsUnderTheDefaultConfigurationAreNotDegraded() {
+        List<CustomerResponse> synchronousReads = readConcurrently("/v1/customers/");
+        List<CustomerResponse> completableFeatureReads = readConcurrently(
+                "/v1/customers/completable-feature/");
+
+        assertThat(synchronousReads).hasSize(CONCURRENT_READS).allSatisfy(this::assertNotDegraded);
+        assertThat(completableFeatureReads).hasSize(CONCURRENT_READS).allSatisfy(this::assertNotDegraded);
+    }
+
+    @Test
+    void aFullReadUnderTheDefaultConfigurationFillsTheSerializedViewThatLaterReadsAreServedFrom() throws IOException {
+        String path = "/v1/customers/completable-feature/1";
+        assertThat(restTemplate.getForEntity(path, CustomerResponse.class).getBody()).satisfies(this::assertNotDegraded);
+
+        byte[] json = customerCompletableFeatureService.getCustomerJsonById(1).orElseThrow();
+        assertThat(objectMapper.readValue(json, CustomerResponse.class)).satisfies(this::assertNotDegraded);
+        assertThat(restTemplate.getForEntity(path, byte[].class).getBody()).isEqualTo(json);
+    }
+
+    private List<CustomerResponse> readConcurrently(String path) {
+        List<CompletableFuture<ResponseEntity<CustomerResponse>>> reads = IntStream.range(0, CONCURRENT_READS)
+                .mapToObj(i -> CompletableFuture.supplyAsync(
+                        () -> restTemplate.getForEntity(path + (i % CUSTOMERS + 1), CustomerResponse.class)))
+                .collect(Collectors.toList());
+        return reads.stream()
+                .map(CompletableFuture::join)
+                .peek(response -> assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK))
+                .map(ResponseEntity::getBody)
+                .collect(Collectors.toList());
+    }
+
+    private void assertNotDegraded(CustomerResponse customer) {
+        assertThat(customer.getId()).isNotNull();
+        assertThat(customer.getDegradedSections()).as("customer %d", customer.getId()).isNull();
+        assertThat(customer.getPurchaseTransactions()).isNotNull();
+    }
+}
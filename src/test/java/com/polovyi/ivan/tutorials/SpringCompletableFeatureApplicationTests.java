@@ -3,7 +3,7 @@ package com.polovyi.ivan.tutorials;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "reactive-server.port=0")
 class SpringCompletableFeatureApplicationTests {
 
 	@Test
@@ -0,0 +1,122 @@
+package com.polovyi.ivan.tutorials.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchingDispatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<Set<Integer>> bulkCalls = new CopyOnWriteArrayList<>();
+
+    @Test
+    void requestsWithinTheWindowAreSentAsOneBulkCall() {
+        BatchingDispatcher<Integer, String> dispatcher = dispatcher(Duration.ofMillis(50), 100,
+                keys -> keys.stream().collect(Collectors.toMap(Function.identity(), key -> "customer-" + key)));
+
+        CompletableFuture<String> first = dispatcher.load(1);
+        CompletableFuture<String> second = dispatcher.load(2);
+        CompletableFuture<String> duplicate = dispatcher.load(1);
+
+        assertThat(first.join()).isEqualTo("customer-1");
+        assertThat(second.join()).isEqualTo("customer-2");
+        assertThat(duplicate.join()).isEqualTo("customer-1");
+        assertThat(bulkCalls).containsExactly(Set.of(1, 2));
+        assertThat(meterRegistry.summary("batch.size", "name", "test").max()).isEqualTo(2);
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForTheWindow() {
+        BatchingDispatcher<Integer, String> dispatcher = dispatcher(Duration.ofHours(1), 2,
+                keys -> keys.stream().collect(Collectors.toMap(Function.identity(), String::valueOf)));
+
+        CompletableFuture<String> first = dispatcher.load(1);
+        CompletableFuture<String> second = dispatcher.load(2);
+
+        assertThat(CompletableFuture.allOf(first, second))
+                .succeedsWithin(Duration.ofSeconds(5));
+        assertThat(bulkCalls).hasSize(1);
+    }
+
+    @Test
+    void bulkFailureFailsEveryCallerOfTheBatch() {
+        BatchingDispatcher<Integer, String> dispatcher = dispatcher(Duration.ofMillis(10), 100, keys -> {
+            throw new IllegalStateException("downstream down");
+        });
+
+        CompletableFuture<String> first = dispatcher.load(1);
+        CompletableFuture<String> second = dispatcher.load(2);
+
+        assertThatThrownBy(first::join).isInstanceOf(CompletionException.class);
+        assertThatThrownBy(second::join).isInstanceOf(CompletionException.class);
+    }
+
+    @Test
+    void aSaturatedExecutorFailsTheWholeBatchAndTheNextBatchStartsAfresh() throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+        CountDownLatch busy = new CountDownLatch(1);
+        executor.execute(() -> await(busy));
+        BatchingDispatcher<Integer, String> dispatcher = dispatcher(executor, Duration.ofMillis(10), 2,
+                keys -> keys.stream().collect(Collectors.toMap(Function.identity(), String::valueOf)));
+
+        CompletableFuture<String> scheduled = dispatcher.load(1);
+        assertThat(scheduled).failsWithin(Duration.ofSeconds(5)).withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(RejectedExecutionException.class);
+        CompletableFuture<String> first = dispatcher.load(2);
+        CompletableFuture<String> second = dispatcher.load(3);
+        assertThat(first).isCompletedExceptionally();
+        assertThat(second).isCompletedExceptionally();
+
+        busy.countDown();
+        while (executor.getActiveCount() > 0) {
+            Thread.sleep(10);
+        }
+
+        assertThat(dispatcher.load(4)).succeedsWithin(Duration.ofSeconds(5)).isEqualTo("4");
+        assertThat(bulkCalls).containsExactly(Set.of(4));
+        executor.shutdown();
+    }
+
+    private BatchingDispatcher<Integer, String> dispatcher(Duration window, int maxBatchSize,
+            Function<Set<Integer>, Map<Integer, String>> bulkLoader) {
+        return dispatcher(Executors.newCachedThreadPool(), window, maxBatchSize, bulkLoader);
+    }
+
+    private BatchingDispatcher<Integer, String> dispatcher(Executor executor, Duration window, int maxBatchSize,
+            Function<Set<Integer>, Map<Integer, String>> bulkLoader) {
+        return new BatchingDispatcher<>("test", keys -> {
+            bulkCalls.add(keys);
+            return bulkLoader.apply(keys);
+        }, executor, window, maxBatchSize, meterRegistry);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
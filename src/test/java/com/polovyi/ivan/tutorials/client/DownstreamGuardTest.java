@@ -0,0 +1,60 @@
+package com.polovyi.ivan.tutorials.client;
+
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DownstreamGuardTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final DownstreamGuard downstreamGuard = new DownstreamGuard(new DownstreamMetrics(meterRegistry),
+            properties(), meterRegistry);
+
+    @Test
+    void trialCallsRefusedByTheBulkheadOrCancelledEarlyDoNotUseUpTheHalfOpenTrials() throws InterruptedException {
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> downstreamGuard.call(Downstream.ADDRESS, "get", () -> {
+                throw new SimulatedDownstreamException("ADDRESS failed");
+            })).isInstanceOf(SimulatedDownstreamException.class);
+        }
+        assertThat(state("open")).isEqualTo(1);
+        Thread.sleep(150);
+
+        Disposable pending = downstreamGuard.call(Downstream.ADDRESS, "get", Mono.never()).subscribe();
+        assertThatThrownBy(() -> downstreamGuard.call(Downstream.ADDRESS, "get", () -> "address"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("bulkhead");
+        pending.dispose();
+
+        assertThat(downstreamGuard.call(Downstream.ADDRESS, "get", () -> "address")).isEqualTo("address");
+        assertThat(downstreamGuard.call(Downstream.ADDRESS, "get", () -> "address")).isEqualTo("address");
+        assertThat(state("closed")).isEqualTo(1);
+    }
+
+    private double state(String state) {
+        return meterRegistry.get("circuit.breaker.state").tag("state", state).gauge().value();
+    }
+
+    private static DownstreamProperties properties() {
+        DownstreamProperties downstreamProperties = new DownstreamProperties();
+        DownstreamProperties.Client client = downstreamProperties.client(Downstream.ADDRESS);
+        client.getCircuitBreaker().setEnabled(true);
+        client.getCircuitBreaker().setWindowSize(2);
+        client.getCircuitBreaker().setMinimumCalls(2);
+        client.getCircuitBreaker().setHalfOpenCalls(2);
+        client.getCircuitBreaker().setSlowCallDuration(Duration.ofSeconds(1));
+        client.getCircuitBreaker().setOpenDuration(Duration.ofMillis(100));
+        client.getBulkhead().setEnabled(true);
+        client.getBulkhead().setMaxConcurrentCalls(1);
+        return downstreamProperties;
+    }
+}
@@ -0,0 +1,46 @@
+package com.polovyi.ivan.tutorials.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DownstreamMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final DownstreamMetrics downstreamMetrics = new DownstreamMetrics(meterRegistry);
+
+    @Test
+    void blockingCallsAreTimedByOutcome() {
+        assertThat(downstreamMetrics.record(Downstream.ADDRESS, "get", () -> "address")).isEqualTo("address");
+        assertThatThrownBy(() -> downstreamMetrics.record(Downstream.ADDRESS, "get", () -> {
+            throw new SimulatedDownstreamException("ADDRESS failed");
+        })).isInstanceOf(SimulatedDownstreamException.class);
+
+        assertThat(calls(Downstream.ADDRESS, "success")).isEqualTo(1);
+        assertThat(calls(Downstream.ADDRESS, "error")).isEqualTo(1);
+    }
+
+    @Test
+    void reactiveCallsAreTimedOnceSubscribedAndCancellationsSeparately() {
+        Mono<String> call = downstreamMetrics.record(Downstream.LOYALTY, "get", Mono.just("loyalty"));
+        assertThat(meterRegistry.find("downstream.call").timer()).isNull();
+
+        assertThat(call.block()).isEqualTo("loyalty");
+        downstreamMetrics.record(Downstream.LOYALTY, "get", Mono.never()).subscribe().dispose();
+
+        assertThat(calls(Downstream.LOYALTY, "success")).isEqualTo(1);
+        assertThat(calls(Downstream.LOYALTY, "cancelled")).isEqualTo(1);
+    }
+
+    private long calls(Downstream downstream, String outcome) {
+        return meterRegistry.get("downstream.call")
+                .tag("downstream", downstream.name())
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+}
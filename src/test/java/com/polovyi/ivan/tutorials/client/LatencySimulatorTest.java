@@ -0,0 +1,41 @@
+package com.polovyi.ivan.tutorials.client;
+
+import com.polovyi.ivan.tutorials.configuration.SimulationProperties;
+import com.polovyi.ivan.tutorials.configuration.SimulationProperties.Percentile;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencySimulatorTest {
+
+    @Test
+    void everyDownstreamHasAProfileAfterBindingAndTheHistogramIsSorted() {
+        SimulationProperties simulationProperties = bind(Map.of(
+                "simulation.clients.address.latency.distribution", "histogram",
+                "simulation.clients.address.latency.histogram[0].percentile", "100",
+                "simulation.clients.address.latency.histogram[0].latency", "20ms",
+                "simulation.clients.address.latency.histogram[1].percentile", "50",
+                "simulation.clients.address.latency.histogram[1].latency", "10ms"));
+
+        assertThat(Downstream.values()).allSatisfy(downstream ->
+                assertThat(simulationProperties.profile(downstream)).isNotNull());
+        assertThat(simulationProperties.profile(Downstream.ADDRESS).getLatency().getHistogram())
+                .extracting(Percentile::getPercentile)
+                .containsExactly(50.0, 100.0);
+        LatencySimulator latencySimulator = new LatencySimulator(simulationProperties);
+        IntStream.range(0, 1_000).forEach(i -> assertThat(latencySimulator.sample(Downstream.ADDRESS).delay())
+                .isBetween(Duration.ofMillis(10), Duration.ofMillis(20)));
+        assertThat(latencySimulator.sample(Downstream.LOYALTY).delay()).isZero();
+    }
+
+    private static SimulationProperties bind(Map<String, String> properties) {
+        return new Binder(new MapConfigurationPropertySource(properties))
+                .bindOrCreate("simulation", SimulationProperties.class);
+    }
+}
@@ -0,0 +1,100 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveLimiterTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private final AdaptiveLimiter limiter = new AdaptiveLimiter("test", 4, 2, 10, 1.5, nanoTime::get);
+
+    @Test
+    void callersOverTheLimitAreRefusedUntilAPermitIsReleased() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        limiter.bindTo(meterRegistry);
+        List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            permits.add(limiter.tryAcquire().orElseThrow());
+        }
+
+        assertThat(limiter.tryAcquire()).isEmpty();
+
+        permits.get(0).onIgnore();
+        permits.get(0).onIgnore();
+
+        assertThat(limiter.getInFlight()).isEqualTo(3);
+        assertThat(limiter.tryAcquire()).isPresent();
+        assertThat(meterRegistry.get("concurrency.rejected").tag("name", "test").functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void droppedCallsShrinkTheLimitDownToTheMinimum() {
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire().orElseThrow().onDropped();
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void theLimitGrowsByOnePerWindowWhileTheLatencyStaysAtItsBaseline() {
+        List<Integer> limits = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            window(limiter.getLimit(), 100);
+            limits.add(limiter.getLimit());
+        }
+
+        /* the first window closes on its first sample, taken with one call in flight, so it only sets the baseline */
+        assertThat(limits).containsExactly(4, 5, 6, 7, 8, 9, 10, 10);
+    }
+
+    @Test
+    void theLimitShrinksInProportionOnceTheLatencyExceedsTheTolerance() {
+        for (int i = 0; i < 5; i++) {
+            window(limiter.getLimit(), 100);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(8);
+
+        /* the first slow window still averages in the fast samples left over from the one before it */
+        window(limiter.getLimit(), 400);
+        window(limiter.getLimit(), 400);
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+
+        window(limiter.getLimit(), 400);
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void windowsFarBelowTheLimitDoNotMoveIt() {
+        window(4, 100);
+        for (int i = 0; i < 5; i++) {
+            window(1, 100);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    /*
+     * Starts `concurrency` calls together and completes them all `rttMillis` later.
+     */
+    private void window(int concurrency, long rttMillis) {
+        List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            permits.add(limiter.tryAcquire().orElseThrow());
+        }
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(rttMillis));
+        permits.forEach(AdaptiveLimiter.Permit::onSuccess);
+    }
+}
@@ -0,0 +1,96 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    @Test
+    void opensOnceTheFailureRateReachesTheThresholdAndRefusesCalls() {
+        CircuitBreaker circuitBreaker = circuitBreaker(Duration.ofMinutes(1));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker.bindTo(meterRegistry);
+        for (int i = 0; i < 3; i++) {
+            assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+            circuitBreaker.onSuccess(FAST);
+        }
+        for (int i = 0; i < 2; i++) {
+            assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+            circuitBreaker.onError(FAST);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        circuitBreaker.tryAcquirePermission();
+        circuitBreaker.onError(FAST);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(meterRegistry.get("circuit.breaker.state").tag("state", "open").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("circuit.breaker.not.permitted").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void healthyTrialCallsCloseItAgain() throws InterruptedException {
+        CircuitBreaker circuitBreaker = circuitBreaker(Duration.ofMillis(200));
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onSuccess(SLOW);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+
+        Thread.sleep(250);
+
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        circuitBreaker.onSuccess(FAST);
+        circuitBreaker.onSuccess(FAST);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void cancelledTrialsGiveTheirPermissionBackUnlessTheyRanSlow() throws InterruptedException {
+        CircuitBreaker circuitBreaker = circuitBreaker(Duration.ofMillis(200));
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onError(FAST);
+        }
+        Thread.sleep(250);
+
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        circuitBreaker.onCancel(FAST);
+        circuitBreaker.releasePermission();
+
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        circuitBreaker.onCancel(SLOW);
+        circuitBreaker.onCancel(SLOW);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private CircuitBreaker circuitBreaker(Duration openDuration) {
+        return CircuitBreaker.builder()
+                .name("test")
+                .windowSize(10)
+                .minimumCalls(4)
+                .failureRateThreshold(0.5)
+                .slowCallRateThreshold(1.0)
+                .slowCallDuration(Duration.ofSeconds(1))
+                .openDuration(openDuration)
+                .halfOpenCalls(2)
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotKeysTest {
+
+    @Test
+    void keepsTheMostFrequentKeysHottestFirst() {
+        HotKeys hotKeys = new HotKeys(3, 1024);
+        for (int round = 0; round < 100; round++) {
+            for (int key = 1; key <= 5; key++) {
+                hotKeys.record(key);
+            }
+            hotKeys.record(7);
+            hotKeys.record(7);
+            hotKeys.record(8);
+            hotKeys.record(8);
+            hotKeys.record(8);
+            hotKeys.record(1000 + round);
+        }
+
+        assertThat(hotKeys.top()).hasSize(3).startsWith(8, 7);
+        assertThat(hotKeys.estimate(8)).isGreaterThanOrEqualTo(300);
+    }
+
+    @Test
+    void keysThatStopBeingReadAreDisplaced() {
+        HotKeys hotKeys = new HotKeys(1, 16);
+        for (int i = 0; i < 100; i++) {
+            hotKeys.record(1);
+        }
+        for (int i = 0; i < 1000; i++) {
+            hotKeys.record(2);
+        }
+
+        assertThat(hotKeys.top()).containsExactly(2);
+        assertThat(hotKeys.estimate(1)).isLessThan(hotKeys.estimate(2));
+    }
+
+    @Test
+    void concurrentReadersAgreeOnTheHottestKeys() throws InterruptedException {
+        HotKeys hotKeys = new HotKeys(2, 64);
+        ExecutorService readers = Executors.newFixedThreadPool(8);
+        for (int reader = 0; reader < 8; reader++) {
+            int offset = reader * 1_000;
+            readers.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    hotKeys.record(1);
+                    hotKeys.record(i % 3 == 0 ? 2 : offset + i);
+                }
+            });
+        }
+        readers.shutdown();
+        assertThat(readers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(hotKeys.top()).containsExactly(1, 2);
+    }
+}
@@ -0,0 +1,71 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyedWriteCoalescerTest {
+
+    private final List<Map.Entry<Integer, String>> writes = new CopyOnWriteArrayList<>();
+
+    private final List<CompletableFuture<Void>> inFlight = new CopyOnWriteArrayList<>();
+
+    private final KeyedWriteCoalescer<Integer, String> coalescer = new KeyedWriteCoalescer<>("test",
+            (earlier, later) -> earlier + "+" + later,
+            (key, value) -> {
+                writes.add(Map.entry(key, value));
+                CompletableFuture<Void> write = new CompletableFuture<>();
+                inFlight.add(write);
+                return write;
+            });
+
+    @Test
+    void updatesSubmittedDuringAWriteAreMergedIntoTheNextOne() {
+        CompletableFuture<Void> first = coalescer.submit(1, "phone");
+        CompletableFuture<Void> second = coalescer.submit(1, "address");
+        CompletableFuture<Void> third = coalescer.submit(1, "financial-info");
+
+        assertThat(writes).containsExactly(Map.entry(1, "phone"));
+
+        inFlight.get(0).complete(null);
+
+        assertThat(first).isCompleted();
+        assertThat(second).isNotDone();
+        assertThat(writes).containsExactly(Map.entry(1, "phone"), Map.entry(1, "address+financial-info"));
+
+        inFlight.get(1).complete(null);
+
+        assertThat(second).isCompleted();
+        assertThat(third).isCompleted();
+        assertThat(coalescer.activeKeys()).isZero();
+    }
+
+    @Test
+    void differentKeysAreWrittenInParallel() {
+        coalescer.submit(1, "phone");
+        coalescer.submit(2, "phone");
+
+        assertThat(writes).containsExactly(Map.entry(1, "phone"), Map.entry(2, "phone"));
+        assertThat(coalescer.activeKeys()).isEqualTo(2);
+    }
+
+    @Test
+    void aFailedWriteFailsOnlyItsOwnCallers() {
+        CompletableFuture<Void> first = coalescer.submit(1, "phone");
+        CompletableFuture<Void> second = coalescer.submit(1, "address");
+
+        inFlight.get(0).completeExceptionally(new IllegalStateException("address service unavailable"));
+        inFlight.get(1).complete(null);
+
+        assertThatThrownBy(first::join).isInstanceOf(CompletionException.class)
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThat(second).isCompleted();
+    }
+}
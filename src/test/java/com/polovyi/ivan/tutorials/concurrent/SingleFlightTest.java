@@ -0,0 +1,77 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SingleFlight<Integer, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+
+    @Test
+    void concurrentCallersForTheSameKeyShareOneCall() {
+        AtomicInteger invocations = new AtomicInteger();
+        CompletableFuture<String> downstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute(1, () -> {
+            invocations.incrementAndGet();
+            return downstream;
+        });
+        CompletableFuture<String> second = singleFlight.execute(1, () -> {
+            invocations.incrementAndGet();
+            return CompletableFuture.completedFuture("unexpected");
+        });
+        downstream.complete("customer-1");
+
+        assertThat(first.join()).isEqualTo("customer-1");
+        assertThat(second.join()).isEqualTo("customer-1");
+        assertThat(invocations).hasValue(1);
+        assertThat(meterRegistry.counter("singleflight.deduplicated", "name", "test").count()).isEqualTo(1);
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    void failedCallIsRemovedSoTheNextCallerRetries() {
+        CompletableFuture<String> failed = singleFlight.execute(1,
+                () -> CompletableFuture.failedFuture(new IllegalStateException("downstream down")));
+
+        assertThatThrownBy(failed::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.inFlight()).isZero();
+        assertThat(singleFlight.execute(1, () -> CompletableFuture.completedFuture("recovered")).join())
+                .isEqualTo("recovered");
+    }
+
+    @Test
+    void callerCannotCompleteTheSharedFutureForOthers() {
+        CompletableFuture<String> downstream = new CompletableFuture<>();
+        CompletableFuture<String> first = singleFlight.execute(1, () -> downstream);
+        CompletableFuture<String> second = singleFlight.execute(1, () -> downstream);
+
+        first.complete("overwritten by the first caller");
+        downstream.complete("customer-1");
+
+        assertThat(second.join()).isEqualTo("customer-1");
+    }
+
+    @Test
+    void everyCallerGetsItsOwnCopyOfTheSharedResult() {
+        SingleFlight<Integer, StringBuilder> builders = new SingleFlight<>("builders", meterRegistry);
+        CompletableFuture<StringBuilder> downstream = new CompletableFuture<>();
+        CompletableFuture<StringBuilder> first = builders.execute(1, () -> downstream, StringBuilder::new);
+        CompletableFuture<StringBuilder> second = builders.execute(1, () -> downstream, StringBuilder::new);
+        downstream.complete(new StringBuilder("customer-1"));
+
+        first.join().append(" changed by the first caller");
+
+        assertThat(second.join()).hasToString("customer-1");
+    }
+}
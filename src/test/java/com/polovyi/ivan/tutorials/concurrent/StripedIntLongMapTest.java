@@ -0,0 +1,42 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedIntLongMapTest {
+
+    private final StripedIntLongMap map = new StripedIntLongMap(8);
+
+    @Test
+    void concurrentWritersDoNotLoseEntries() {
+        CompletableFuture.allOf(IntStream.range(0, 8)
+                        .mapToObj(writer -> CompletableFuture.runAsync(() -> IntStream.range(0, 10_000)
+                                .forEach(i -> map.put(writer * 10_000 + i, i))))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+
+        assertThat(map.size()).isEqualTo(80_000);
+        assertThat(map.get(79_999)).hasValue(9_999);
+        assertThat(map.get(80_000)).isEmpty();
+    }
+
+    @Test
+    void aStoredZeroIsTellableFromAMissingKey() {
+        map.put(1, 0L);
+        map.put(2, 250L);
+        map.put(2, 500L);
+
+        assertThat(map.get(1)).hasValue(0L);
+        assertThat(map.get(3)).isEmpty();
+
+        AtomicLong total = new AtomicLong();
+        map.forEach((customerId, points) -> total.addAndGet(points));
+        assertThat(total).hasValue(500L);
+        assertThat(map.size()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,38 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedIntObjectMapTest {
+
+    private final StripedIntObjectMap<String> map = new StripedIntObjectMap<>(8);
+
+    @Test
+    void concurrentWritersDoNotLoseEntries() {
+        CompletableFuture.allOf(IntStream.range(0, 8)
+                        .mapToObj(writer -> CompletableFuture.runAsync(() -> IntStream.range(0, 10_000)
+                                .forEach(i -> map.put(writer * 10_000 + i, "customer-" + i))))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+
+        assertThat(map.size()).isEqualTo(80_000);
+        assertThat(map.get(79_999)).isEqualTo("customer-9999");
+        assertThat(map.get(80_000)).isNull();
+    }
+
+    @Test
+    void putReturnsThePreviousValue() {
+        assertThat(map.put(1, "old-address")).isNull();
+        assertThat(map.put(1, "new-address")).isEqualTo("old-address");
+        assertThat(map.getOrDefault(2, "none")).isEqualTo("none");
+
+        AtomicInteger visited = new AtomicInteger();
+        map.forEach((customerId, address) -> visited.incrementAndGet());
+        assertThat(visited).hasValue(1);
+    }
+}
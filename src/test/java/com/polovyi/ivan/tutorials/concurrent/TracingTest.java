@@ -0,0 +1,73 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracingTest {
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+    private final Executor executor = Tracing.propagating(executorService);
+
+    @AfterEach
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void asyncStagesRunInTheSubmittingTrace() {
+        Span root = Span.root("GET /customers/1");
+        CompletableFuture<String> combined;
+        try (Tracing.Scope scope = root.makeCurrent()) {
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> MDC.get(Tracing.TRACE_ID), executor);
+            CompletableFuture<String> second = CompletableFuture.supplyAsync(
+                    () -> Tracing.current().map(Span::getSpanId).orElse(null), executor);
+            combined = first.thenCombineAsync(second, (traceId, spanId) -> traceId + "/" + spanId, executor);
+        }
+
+        assertThat(combined.join()).isEqualTo(root.getTraceId() + "/" + root.getSpanId());
+        assertThat(Tracing.current()).isEmpty();
+        assertThat(MDC.get(Tracing.TRACE_ID)).isNull();
+    }
+
+    @Test
+    void waterfallMarksTheLongestChildAsTheCriticalPath() throws InterruptedException {
+        Span root = Span.root("request");
+        Span fast = root.child("fast");
+        Span slow = root.child("slow");
+        fast.end();
+        Thread.sleep(20);
+        slow.end();
+        root.end();
+
+        String waterfall = Tracing.waterfall(root);
+
+        assertThat(waterfall).startsWith("Trace " + root.getTraceId() + " request took");
+        assertThat(waterfall.lines().filter(line -> line.endsWith(" *")))
+                .singleElement()
+                .satisfies(line -> assertThat(line).contains("slow"));
+    }
+
+    @Test
+    void aTraceKeepsAtMostMaxSpansAndNoneStartedAfterItsRootEnded() {
+        Span root = Span.root("export");
+        for (int i = 0; i < Span.MAX_SPANS; i++) {
+            root.child("row " + i).end();
+        }
+        root.end();
+        root.child("late").end();
+
+        assertThat(root.spans()).hasSize(Span.MAX_SPANS);
+        assertThat(root.droppedSpans()).isEqualTo(2);
+        assertThat(Tracing.waterfall(root)).startsWith("Trace " + root.getTraceId() + " export took")
+                .contains(", 2 spans not shown");
+    }
+}
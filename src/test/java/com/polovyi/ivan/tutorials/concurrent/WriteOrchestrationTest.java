@@ -0,0 +1,124 @@
+package com.polovyi.ivan.tutorials.concurrent;
+
+import com.polovyi.ivan.tutorials.concurrent.WriteOrchestration.Report;
+import com.polovyi.ivan.tutorials.concurrent.WriteOrchestration.Status;
+import com.polovyi.ivan.tutorials.concurrent.WriteOrchestration.Step;
+import com.polovyi.ivan.tutorials.concurrent.WriteOrchestration.StepReport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WriteOrchestrationTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void independentStepsRunInParallelAfterTheirDependency() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable awaitSibling = () -> {
+            bothStarted.countDown();
+            try {
+                assertThat(bothStarted.await(2, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        Report report = new WriteOrchestration("test", meterRegistry)
+                .step(step("customer", () -> "found").build())
+                .step(step("address", () -> {
+                    awaitSibling.run();
+                    return "old-address";
+                }).dependsOn("customer").build())
+                .step(step("financial-info", () -> {
+                    awaitSibling.run();
+                    return "old-financial-info";
+                }).dependsOn("customer").build())
+                .run()
+                .join();
+
+        assertThat(report.succeeded()).isTrue();
+        assertThat(statuses(report)).containsOnly(Map.entry("customer", Status.SUCCEEDED),
+                Map.entry("address", Status.SUCCEEDED), Map.entry("financial-info", Status.SUCCEEDED));
+    }
+
+    @Test
+    void failedAttemptsAreRetriedWithBackoff() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Report report = new WriteOrchestration("test", meterRegistry)
+                .step(step("address", () -> {
+                    if (attempts.incrementAndGet() < 3) {
+                        throw new IllegalStateException("address service unavailable");
+                    }
+                    return "old-address";
+                }).maxAttempts(3).backoff(Duration.ofMillis(10)).build())
+                .run()
+                .join();
+
+        assertThat(report.steps()).extracting(StepReport::attempts).containsExactly(3);
+        assertThat(report.succeeded()).isTrue();
+    }
+
+    @Test
+    void partialFailureCompensatesCompletedStepsAndSkipsDependents() {
+        List<String> compensated = new CopyOnWriteArrayList<>();
+        IllegalStateException failure = new IllegalStateException("financial service unavailable");
+        WriteOrchestration orchestration = new WriteOrchestration("test", meterRegistry)
+                .step(step("customer", () -> "found").build())
+                .step(step("address", () -> "old-address")
+                        .compensation(compensated::add)
+                        .dependsOn("customer")
+                        .build())
+                .step(this.<String>step("financial-info", () -> {
+                    throw failure;
+                }).compensation(compensated::add).dependsOn("customer").build())
+                .step(step("notification", () -> "sent").dependsOn("financial-info").build());
+
+        CompletableFuture<Report> result = orchestration.run();
+
+        assertThatThrownBy(result::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCause(failure);
+        assertThat(compensated).containsExactly("old-address");
+        assertThat(meterRegistry.timer("write.step", "orchestration", "test", "step", "address",
+                "status", Status.COMPENSATED.name()).count()).isEqualTo(1);
+        assertThat(meterRegistry.find("write.step").tag("step", "notification").timer()).isNull();
+    }
+
+    private <T> Step.StepBuilder<T> step(String name, Supplier<T> action) {
+        return Step.<T>builder()
+                .name(name)
+                .executor(executor)
+                .action(action);
+    }
+
+    private Map<String, Status> statuses(Report report) {
+        return report.steps().stream()
+                .collect(Collectors.toMap(StepReport::step, StepReport::status));
+    }
+}
@@ -0,0 +1,51 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.event.CustomerChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheConfigurationTest {
+
+    private CacheManager cacheManager;
+
+    private Cache addresses;
+
+    @BeforeEach
+    void setUp() {
+        DownstreamProperties downstreamProperties = new DownstreamProperties();
+        downstreamProperties.client(Downstream.ADDRESS).getCache().setEnabled(true);
+        cacheManager = new CacheConfiguration().cacheManager(downstreamProperties);
+        addresses = cacheManager.getCache(Downstream.ADDRESS.key());
+    }
+
+    @Test
+    void cachesWhatWasReadOnAMissUntilTheCustomerChanges() {
+        assertThat(addresses.get(1)).isNull();
+        addresses.put(1, "old address");
+
+        assertThat(addresses.get(1).get()).isEqualTo("old address");
+
+        new CacheInvalidation(cacheManager).evict(new CustomerChangedEvent(1, Downstream.ADDRESS));
+
+        assertThat(addresses.get(1)).isNull();
+    }
+
+    @Test
+    void aReadThatStartedBeforeAWriteDoesNotPutTheOldValueBack() {
+        assertThat(addresses.get(1)).isNull();
+        /* the write lands and evicts while the read is still waiting for the client */
+        new CacheInvalidation(cacheManager).evict(new CustomerChangedEvent(1, Downstream.ADDRESS));
+        addresses.put(1, "old address");
+
+        assertThat(addresses.get(1)).isNull();
+
+        addresses.put(1, "new address");
+
+        assertThat(addresses.get(1).get()).isEqualTo("new address");
+    }
+}
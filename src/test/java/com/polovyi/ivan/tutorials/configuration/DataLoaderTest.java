@@ -0,0 +1,80 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class DataLoaderTest {
+
+    private static final int CUSTOMERS = 50;
+
+    @Test
+    void theSameSeedGeneratesTheSameData() {
+        DataGeneratorProperties properties = properties();
+        properties.setParallelism(1);
+        DataLoader first = new DataLoader(mock(CustomerRepository.class), mock(JdbcTemplate.class), properties,
+                new DataStoreProperties(), new ObjectMapper());
+        DataGeneratorProperties parallel = properties();
+        parallel.setParallelism(4);
+        parallel.setBatchSize(7);
+        DataLoader second = new DataLoader(mock(CustomerRepository.class), mock(JdbcTemplate.class), parallel,
+                new DataStoreProperties(), new ObjectMapper());
+
+        first.generate(true);
+        second.generate(true);
+
+        assertThat(insertedRows(second)).containsExactlyInAnyOrderElementsOf(insertedRows(first));
+        IntStream.rangeClosed(1, CUSTOMERS).forEach(customerId -> {
+            assertThat(second.getAddressClientResponses().get(customerId))
+                    .isEqualTo(first.getAddressClientResponses().get(customerId));
+            assertThat(second.getFinancialResponses().get(customerId))
+                    .isEqualTo(first.getFinancialResponses().get(customerId));
+            assertThat(second.getPurchaseTransactionResponses().get(customerId))
+                    .isEqualTo(first.getPurchaseTransactionResponses().get(customerId));
+            assertThat(second.getPoints().get(customerId)).isEqualTo(first.getPoints().get(customerId));
+        });
+    }
+
+    @Test
+    void anExponentialMeanBelowTheMinimumStillGivesEveryCustomerTheMinimum() {
+        DataGeneratorProperties properties = properties();
+        properties.getPurchaseTransactions().setDistribution(DataGeneratorProperties.Distribution.EXPONENTIAL);
+        properties.getPurchaseTransactions().setMin(3);
+        properties.getPurchaseTransactions().setMean(1);
+        DataLoader dataLoader = new DataLoader(mock(CustomerRepository.class), mock(JdbcTemplate.class), properties,
+                new DataStoreProperties(), new ObjectMapper());
+
+        dataLoader.generate(true);
+
+        IntStream.rangeClosed(1, CUSTOMERS).forEach(customerId ->
+                assertThat(dataLoader.getPurchaseTransactionResponses().get(customerId)).hasSizeGreaterThanOrEqualTo(3));
+    }
+
+    private static DataGeneratorProperties properties() {
+        DataGeneratorProperties properties = new DataGeneratorProperties();
+        properties.setCustomers(CUSTOMERS);
+        properties.setSeed(42L);
+        return properties;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<List<Object>> insertedRows(DataLoader dataLoader) {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(dataLoader.getJdbcTemplate(), atLeastOnce()).batchUpdate(anyString(), rows.capture());
+        List<List<Object>> inserted = new ArrayList<>();
+        rows.getAllValues().forEach(batch -> batch.forEach(row -> inserted.add(List.of(row))));
+        return inserted;
+    }
+}
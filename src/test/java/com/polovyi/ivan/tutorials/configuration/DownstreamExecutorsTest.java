@@ -0,0 +1,111 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DownstreamExecutorsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CountDownLatch busy = new CountDownLatch(1);
+
+    private DownstreamExecutors downstreamExecutors;
+
+    @AfterEach
+    void tearDown() {
+        busy.countDown();
+        downstreamExecutors.destroy();
+    }
+
+    @Test
+    void eachDownstreamGetsItsOwnPool() {
+        downstreamExecutors = new DownstreamExecutors(properties(DownstreamProperties.RejectionPolicy.ABORT),
+                meterRegistry);
+        Executor address = downstreamExecutors.get(Downstream.ADDRESS);
+        saturate(address);
+
+        String[] thread = new String[1];
+        CountDownLatch ran = new CountDownLatch(1);
+        downstreamExecutors.get(Downstream.LOYALTY).execute(() -> {
+            thread[0] = Thread.currentThread().getName();
+            ran.countDown();
+        });
+
+        assertThat(await(ran)).isTrue();
+        assertThat(thread[0]).startsWith(Downstream.LOYALTY.key() + "-");
+    }
+
+    @Test
+    void aSaturatedPoolRejectsWithA503AndCountsTheRejection() {
+        downstreamExecutors = new DownstreamExecutors(properties(DownstreamProperties.RejectionPolicy.ABORT),
+                meterRegistry);
+        Executor address = downstreamExecutors.get(Downstream.ADDRESS);
+        saturate(address);
+
+        assertThatThrownBy(() -> address.execute(() -> { }))
+                .isInstanceOf(ExecutorSaturatedException.class)
+                .hasMessageContaining(Downstream.ADDRESS.key());
+        assertThat(AnnotatedElementUtils.findMergedAnnotation(ExecutorSaturatedException.class, ResponseStatus.class)
+                .code()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(meterRegistry.get("executor.rejected").tag("name", Downstream.ADDRESS.key()).counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("executor.rejected").tag("name", Downstream.LOYALTY.key()).counter().count())
+                .isZero();
+    }
+
+    @Test
+    void callerRunsRunsARejectedTaskOnTheCallingThread() {
+        downstreamExecutors = new DownstreamExecutors(properties(DownstreamProperties.RejectionPolicy.CALLER_RUNS),
+                meterRegistry);
+        Executor address = downstreamExecutors.get(Downstream.ADDRESS);
+        saturate(address);
+        String[] thread = new String[1];
+
+        address.execute(() -> thread[0] = Thread.currentThread().getName());
+
+        assertThat(thread[0]).isEqualTo(Thread.currentThread().getName());
+        assertThat(meterRegistry.get("executor.rejected").tag("name", Downstream.ADDRESS.key()).counter().count())
+                .isEqualTo(1);
+    }
+
+    /*
+     * One thread blocked and one task queued behind it.
+     */
+    private void saturate(Executor executor) {
+        executor.execute(() -> await(busy));
+        executor.execute(() -> { });
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static DownstreamProperties properties(DownstreamProperties.RejectionPolicy rejectionPolicy) {
+        DownstreamProperties downstreamProperties = new DownstreamProperties();
+        for (Downstream downstream : Downstream.values()) {
+            DownstreamProperties.Pool pool = downstreamProperties.client(downstream).getPool();
+            pool.setCoreSize(1);
+            pool.setMaxSize(1);
+            pool.setQueueCapacity(1);
+            pool.setRejectionPolicy(rejectionPolicy);
+        }
+        return downstreamProperties;
+    }
+}
@@ -0,0 +1,68 @@
+package com.polovyi.ivan.tutorials.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveServerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ReactiveServer reactiveServer = new ReactiveServer(List.of(), new ObjectMapper(),
+            new ReactiveServerProperties(), meterRegistry);
+
+    private final RouterFunction<ServerResponse> routes = RouterFunctions.route()
+            .GET("/found", request -> ServerResponse.ok().bodyValue("found"))
+            .GET("/missing", request -> ServerResponse.status(HttpStatus.NOT_FOUND).build())
+            .GET("/empty", request -> Mono.empty())
+            .GET("/failing", request -> Mono.error(new IllegalStateException("downstream down")))
+            .build()
+            .filter(reactiveServer.requestMetrics());
+
+    private final WebTestClient webTestClient = WebTestClient.bindToRouterFunction(routes).build();
+
+    @Test
+    void requestsAreTimedByRouteAndStatus() {
+        webTestClient.get().uri("/found").exchange().expectStatus().isOk();
+        webTestClient.get().uri("/missing").exchange().expectStatus().isNotFound();
+
+        assertThat(requestCount("/found", "200", "SUCCESS")).isEqualTo(1);
+        assertThat(requestCount("/missing", "404", "CLIENT_ERROR")).isEqualTo(1);
+        assertThat(meterRegistry.get("http.server.requests.active").tag("uri", "/found").longTaskTimer()
+                .activeTasks()).isZero();
+    }
+
+    @Test
+    void aHandlerThatCompletesEmptyIsRecordedAsOk() {
+        webTestClient.get().uri("/empty").exchange();
+
+        assertThat(requestCount("/empty", "200", "SUCCESS")).isEqualTo(1);
+    }
+
+    @Test
+    void aFailingHandlerIsRecordedAsAServerErrorWithItsException() {
+        webTestClient.get().uri("/failing").exchange().expectStatus().is5xxServerError();
+
+        assertThat(meterRegistry.get("http.server.requests").tag("uri", "/failing").tag("status", "500")
+                .tag("exception", "IllegalStateException").timer().count()).isEqualTo(1);
+    }
+
+    private long requestCount(String uri, String status, String outcome) {
+        return meterRegistry.get("http.server.requests")
+                .tag("uri", uri)
+                .tag("status", status)
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+}
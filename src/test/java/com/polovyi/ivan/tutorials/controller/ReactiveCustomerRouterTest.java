@@ -0,0 +1,138 @@
+package com.polovyi.ivan.tutorials.controller;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.client.ReactiveAddressClient;
+import com.polovyi.ivan.tutorials.client.ReactiveFinancialClient;
+import com.polovyi.ivan.tutorials.client.ReactiveLoyaltyClient;
+import com.polovyi.ivan.tutorials.client.ReactivePurchaseTransactionClient;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.dto.LoyaltyClientResponse;
+import com.polovyi.ivan.tutorials.entity.CustomerEntity;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import com.polovyi.ivan.tutorials.service.ReactiveCustomerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveCustomerRouterTest {
+
+    private final CustomerRepository customerRepository = mock(CustomerRepository.class);
+
+    private final ReactiveAddressClient addressClient = mock(ReactiveAddressClient.class);
+
+    private final ReactivePurchaseTransactionClient purchaseTransactionClient =
+            mock(ReactivePurchaseTransactionClient.class);
+
+    private final ReactiveFinancialClient financialClient = mock(ReactiveFinancialClient.class);
+
+    private final ReactiveLoyaltyClient loyaltyClient = mock(ReactiveLoyaltyClient.class);
+
+    private final ReactiveCustomerService service = new ReactiveCustomerService(customerRepository, addressClient,
+            purchaseTransactionClient, financialClient, loyaltyClient, new DownstreamProperties(),
+            new SimpleMeterRegistry());
+
+    private final WebTestClient webTestClient = WebTestClient.bindToRouterFunction(
+            new ReactiveCustomerRouter().reactiveCustomerRoutes(new ReactiveCustomerHandler(service))).build();
+
+    @Test
+    void allCustomersAreReadPageByPage() {
+        List<CustomerEntity> customers = IntStream.rangeClosed(1, 1_001)
+                .mapToObj(ReactiveCustomerRouterTest::customer)
+                .collect(Collectors.toList());
+        when(customerRepository.findByIdGreaterThanOrderByIdAsc(anyInt(), any())).thenAnswer(invocation -> {
+            int afterId = invocation.getArgument(0);
+            Pageable pageable = invocation.getArgument(1);
+            return customers.stream()
+                    .filter(customer -> customer.getId() > afterId)
+                    .limit(pageable.getPageSize())
+                    .collect(Collectors.toList());
+        });
+
+        List<CustomerResponse> body = webTestClient.get().uri("/v2/customers")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CustomerResponse.class)
+                .returnResult().getResponseBody();
+
+        assertThat(body).extracting(CustomerResponse::getId)
+                .containsExactlyElementsOf(IntStream.rangeClosed(1, 1_001).boxed().toList());
+        verify(customerRepository, times(3)).findByIdGreaterThanOrderByIdAsc(anyInt(), any());
+    }
+
+    @Test
+    void aCustomerIsAssembledFromEveryDownstream() {
+        when(customerRepository.findById(1)).thenReturn(Optional.of(customer(1)));
+        when(addressClient.getAddressByCustomerId(1)).thenReturn(Mono.empty());
+        when(purchaseTransactionClient.getPurchaseTransactionsByCustomerId(1)).thenReturn(Flux.empty());
+        when(financialClient.getFinancialInfoByCustomerId(1)).thenReturn(Flux.empty());
+        when(loyaltyClient.getLoyaltyPointsByCustomerId(1)).thenReturn(Mono.just(new LoyaltyClientResponse(42L)));
+
+        webTestClient.get().uri("/v2/customers/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.fullName").isEqualTo("Customer 1")
+                .jsonPath("$.loyaltyResponse.points").isEqualTo(42)
+                .jsonPath("$.degradedSections").doesNotExist();
+    }
+
+    @Test
+    void anUnknownCustomerIsNotFound() {
+        when(customerRepository.findById(2)).thenReturn(Optional.empty());
+        when(addressClient.getAddressByCustomerId(2)).thenReturn(Mono.empty());
+        when(purchaseTransactionClient.getPurchaseTransactionsByCustomerId(2)).thenReturn(Flux.empty());
+        when(financialClient.getFinancialInfoByCustomerId(2)).thenReturn(Flux.empty());
+        when(loyaltyClient.getLoyaltyPointsByCustomerId(2)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/v2/customers/2")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void cancellingTheRequestCancelsEveryDownstreamCall() {
+        Set<Downstream> cancelled = ConcurrentHashMap.newKeySet();
+        when(customerRepository.findById(1)).thenReturn(Optional.of(customer(1)));
+        when(addressClient.getAddressByCustomerId(1))
+                .thenReturn(Mono.never().doOnCancel(() -> cancelled.add(Downstream.ADDRESS)).then(Mono.empty()));
+        when(purchaseTransactionClient.getPurchaseTransactionsByCustomerId(1))
+                .thenReturn(Flux.never().doOnCancel(() -> cancelled.add(Downstream.PURCHASE_TRANSACTION))
+                        .thenMany(Flux.empty()));
+        when(financialClient.getFinancialInfoByCustomerId(1))
+                .thenReturn(Flux.never().doOnCancel(() -> cancelled.add(Downstream.FINANCIAL))
+                        .thenMany(Flux.empty()));
+        when(loyaltyClient.getLoyaltyPointsByCustomerId(1))
+                .thenReturn(Mono.never().doOnCancel(() -> cancelled.add(Downstream.LOYALTY)).then(Mono.empty()));
+
+        Disposable request = service.getCustomerById(1).subscribe();
+        request.dispose();
+
+        assertThat(cancelled).containsExactlyInAnyOrder(Downstream.ADDRESS, Downstream.PURCHASE_TRANSACTION,
+                Downstream.FINANCIAL, Downstream.LOYALTY);
+    }
+
+    private static CustomerEntity customer(int id) {
+        return new CustomerEntity(id, "Customer " + id, "555-0100", LocalDate.of(2020, 1, 1));
+    }
+}
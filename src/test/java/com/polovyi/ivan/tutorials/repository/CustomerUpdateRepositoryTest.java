@@ -0,0 +1,43 @@
+package com.polovyi.ivan.tutorials.repository;
+
+import com.polovyi.ivan.tutorials.entity.CustomerUpdateEntity;
+import com.polovyi.ivan.tutorials.entity.CustomerUpdateStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class CustomerUpdateRepositoryTest {
+
+    @Autowired
+    private CustomerUpdateRepository customerUpdateRepository;
+
+    @Test
+    void pendingUpdatesOfACustomerWithAWriteInProgressAreNotFetched() {
+        save(1, CustomerUpdateStatus.IN_PROGRESS);
+        save(1, CustomerUpdateStatus.PENDING);
+        save(1, CustomerUpdateStatus.PENDING);
+        CustomerUpdateEntity idle = save(2, CustomerUpdateStatus.PENDING);
+        save(3, CustomerUpdateStatus.APPLIED);
+
+        List<CustomerUpdateEntity> pending = customerUpdateRepository.findPendingOfIdleCustomers(
+                CustomerUpdateStatus.PENDING, CustomerUpdateStatus.IN_PROGRESS, PageRequest.of(0, 2));
+
+        assertThat(pending).extracting(CustomerUpdateEntity::getId).containsExactly(idle.getId());
+    }
+
+    private CustomerUpdateEntity save(int customerId, CustomerUpdateStatus status) {
+        return customerUpdateRepository.save(CustomerUpdateEntity.builder()
+                .customerId(customerId)
+                .payload("{}")
+                .status(status)
+                .createdAt(Instant.now())
+                .build());
+    }
+}
@@ -0,0 +1,243 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polovyi.ivan.tutorials.client.AddressClient;
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.client.FinancialClient;
+import com.polovyi.ivan.tutorials.client.LoyaltyClient;
+import com.polovyi.ivan.tutorials.client.PurchaseTransactionClient;
+import com.polovyi.ivan.tutorials.configuration.DownstreamExecutors;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
+import com.polovyi.ivan.tutorials.configuration.WarmupProperties;
+import com.polovyi.ivan.tutorials.dto.Address;
+import com.polovyi.ivan.tutorials.dto.CustomerFields;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.dto.FinancialInfo;
+import com.polovyi.ivan.tutorials.dto.FinancialRequest;
+import com.polovyi.ivan.tutorials.dto.LoyaltyClientResponse;
+import com.polovyi.ivan.tutorials.dto.UpdateAddressRequest;
+import com.polovyi.ivan.tutorials.dto.UpdateCustomerRequest;
+import com.polovyi.ivan.tutorials.entity.CustomerEntity;
+import com.polovyi.ivan.tutorials.event.CustomerChangedEvent;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CustomerCompletableFeatureServiceTest {
+
+    private static final Duration NON_BLOCKING = Duration.ofMillis(500);
+
+    private final CountDownLatch repositoryLatch = new CountDownLatch(1);
+
+    private final AddressClient addressClient = mock(AddressClient.class);
+
+    private final PurchaseTransactionClient purchaseTransactionClient = mock(PurchaseTransactionClient.class);
+
+    private final FinancialClient financialClient = mock(FinancialClient.class);
+
+    private final LoyaltyClient loyaltyClient = mock(LoyaltyClient.class);
+
+    private final CustomerRepository customerRepository = mock(CustomerRepository.class);
+
+    private DownstreamExecutors downstreamExecutors;
+
+    private CustomerCompletableFeatureService service;
+
+    @BeforeEach
+    void setUp() {
+        when(customerRepository.findById(1)).thenAnswer(invocation -> {
+            repositoryLatch.await(10, TimeUnit.SECONDS);
+            return Optional.of(new CustomerEntity(1, "Jane Doe", "555-0100", LocalDate.now()));
+        });
+        when(purchaseTransactionClient.getPurchaseTransactionsByCustomerId(1)).thenReturn(Set.of());
+        when(financialClient.getFinancialInfoByCustomerId(1)).thenReturn(Set.of());
+        when(loyaltyClient.getLoyaltyPointsByCustomerId(1)).thenReturn(Optional.of(new LoyaltyClientResponse(42L)));
+
+        DownstreamProperties downstreamProperties = new DownstreamProperties();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        downstreamExecutors = new DownstreamExecutors(downstreamProperties, meterRegistry);
+        service = CustomerServiceFixtures.completableFeatureService(customerRepository, addressClient,
+                purchaseTransactionClient, financialClient, loyaltyClient, downstreamProperties, downstreamExecutors,
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repositoryLatch.countDown();
+        downstreamExecutors.destroy();
+    }
+
+    @Test
+    void getCustomerByIdDoesNotBlockTheCallingThread() {
+        assertAssembledWithoutBlocking(service::getCustomerById);
+    }
+
+    @Test
+    void getCustomerByIdUsingAllOfDoesNotBlockTheCallingThread() {
+        assertAssembledWithoutBlocking(service::getCustomerByIdUsingAllOf);
+    }
+
+    @Test
+    void getCustomerByIdOnlyCallsTheDownstreamsOfTheRequestedFields() {
+        repositoryLatch.countDown();
+
+        CustomerResponse customerResponse = service.getCustomerById(1,
+                CustomerFields.parse("phoneNumber,loyaltyResponse")).join();
+
+        assertThat(customerResponse.getPhoneNumber()).isEqualTo("555-0100");
+        assertThat(customerResponse.getLoyaltyResponse().getPoints()).isEqualTo(42L);
+        assertThat(customerResponse.getFullName()).isNull();
+        assertThat(customerResponse.getPurchaseTransactions()).isNull();
+        verifyNoInteractions(addressClient, purchaseTransactionClient, financialClient);
+    }
+
+    @Test
+    void getCustomersByIdsReturnsTheKnownCustomersInRequestOrderFromOneBulkCallPerClient() {
+        when(customerRepository.findAllById(Set.of(3, 1, 2))).thenReturn(List.of(
+                new CustomerEntity(1, "Jane Doe", "555-0100", LocalDate.now()),
+                new CustomerEntity(3, "John Roe", "555-0103", LocalDate.now())));
+        when(addressClient.getAddressesByCustomerIds(Set.of(3, 1, 2))).thenReturn(Map.of());
+        when(purchaseTransactionClient.getPurchaseTransactionsByCustomerIds(Set.of(3, 1, 2))).thenReturn(Map.of());
+        when(financialClient.getFinancialInfoByCustomerIds(Set.of(3, 1, 2))).thenReturn(Map.of());
+        when(loyaltyClient.getLoyaltyPointsByCustomerIds(Set.of(3, 1, 2)))
+                .thenReturn(Map.of(1, new LoyaltyClientResponse(42L)));
+
+        List<CustomerResponse> customers = service.getCustomersByIds(List.of(3, 1, 2, 3)).join();
+
+        assertThat(customers).extracting(CustomerResponse::getId).containsExactly(3, 1);
+        assertThat(customers.get(0).getLoyaltyResponse()).isNull();
+        assertThat(customers.get(1).getLoyaltyResponse().getPoints()).isEqualTo(42L);
+        assertThat(customers).allSatisfy(customer -> assertThat(customer.getDegradedSections()).isNull());
+        verify(loyaltyClient, never()).getLoyaltyPointsByCustomerId(any());
+    }
+
+    @Test
+    void aFailedUpdateRemovesTheAddressItGaveACustomerWhoHadNone() {
+        repositoryLatch.countDown();
+        when(financialClient.updateFinancialInfo(any(), any())).thenThrow(new IllegalStateException("downstream down"));
+        UpdateCustomerRequest request = UpdateCustomerRequest.builder()
+                .financialInfo(Set.of(new FinancialRequest("4111-1111-1111-1111", "DE89370400440532013000")))
+                .address(UpdateAddressRequest.builder().street("Main Street").build())
+                .build();
+
+        assertThat(service.updateCustomer(1, request)).failsWithin(Duration.ofSeconds(10));
+
+        verify(addressClient).deleteAddressByCustomerId(1);
+        verify(addressClient).updateAddressByCustomerId(any(), any());
+    }
+
+    @Test
+    void aReplaceQueuedBehindAWriteSupersedesTheUpdatesQueuedBeforeIt() {
+        CompletableFuture<Void> inFlight = service.updateCustomer(1,
+                UpdateCustomerRequest.builder().phoneNumber("555-0101").build());
+        CompletableFuture<Void> superseded = service.updateCustomer(1, UpdateCustomerRequest.builder()
+                .address(UpdateAddressRequest.builder().street("Main Street").build())
+                .build());
+        CompletableFuture<Void> replace = service.replaceCustomer(1,
+                UpdateCustomerRequest.builder().phoneNumber("555-0102").build());
+
+        repositoryLatch.countDown();
+
+        assertThat(CompletableFuture.allOf(inFlight, superseded, replace)).succeedsWithin(Duration.ofSeconds(10));
+        verify(addressClient, never()).updateAddressByCustomerId(any(), any());
+        verify(addressClient).deleteAddressByCustomerId(1);
+        verify(financialClient).updateFinancialInfo(1, Set.of());
+        verify(customerRepository).save(argThat(customer -> "555-0102".equals(customer.getPhoneNumber())));
+    }
+
+    @Test
+    void anUpdateWithEmptyFinancialInfoKeepsTheFinancialInfoOfAnUpdateQueuedBeforeIt() {
+        Set<FinancialRequest> financialInfo = Set.of(
+                new FinancialRequest("4111-1111-1111-1111", "DE89370400440532013000"));
+        CompletableFuture<Void> inFlight = service.updateCustomer(1,
+                UpdateCustomerRequest.builder().phoneNumber("555-0101").build());
+        CompletableFuture<Void> withFinancialInfo = service.updateCustomer(1,
+                UpdateCustomerRequest.builder().financialInfo(financialInfo).build());
+        CompletableFuture<Void> withEmptyFinancialInfo = service.updateCustomer(1, UpdateCustomerRequest.builder()
+                .phoneNumber("555-0102")
+                .financialInfo(Set.of())
+                .build());
+
+        repositoryLatch.countDown();
+
+        assertThat(CompletableFuture.allOf(inFlight, withFinancialInfo, withEmptyFinancialInfo))
+                .succeedsWithin(Duration.ofSeconds(10));
+        verify(financialClient).updateFinancialInfo(eq(1), argThat(written -> written.stream()
+                .map(FinancialInfo::getIban)
+                .collect(Collectors.toSet())
+                .equals(Set.of("DE89370400440532013000"))));
+        verify(financialClient, never()).updateFinancialInfo(1, Set.of());
+        verify(customerRepository).save(argThat(customer -> "555-0102".equals(customer.getPhoneNumber())));
+    }
+
+    @Test
+    void aReadStartedAfterAChangeDoesNotCacheTheResultOfACallStartedBeforeIt() {
+        WarmupProperties warmupProperties = new WarmupProperties();
+        warmupProperties.setEnabled(true);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HotCustomerCache hotCustomerCache = new HotCustomerCache(warmupProperties, new ObjectMapper(), meterRegistry);
+        CustomerCompletableFeatureService cachingService = CustomerServiceFixtures.completableFeatureService(
+                customerRepository, addressClient, purchaseTransactionClient, financialClient, loyaltyClient,
+                new DownstreamProperties(), downstreamExecutors, meterRegistry, hotCustomerCache);
+        CountDownLatch addressLatch = new CountDownLatch(1);
+        when(addressClient.getAddressByCustomerId(1))
+                .thenAnswer(invocation -> {
+                    addressLatch.await(10, TimeUnit.SECONDS);
+                    return Optional.of(Address.builder().street("Old Street").build());
+                })
+                .thenReturn(Optional.of(Address.builder().street("New Street").build()));
+
+        CompletableFuture<CustomerResponse> beforeTheChange = cachingService.getCustomerById(1);
+        verify(addressClient, timeout(5_000)).getAddressByCustomerId(1);
+        hotCustomerCache.onCustomerChanged(new CustomerChangedEvent(1, Downstream.ADDRESS));
+        CompletableFuture<CustomerResponse> afterTheChange = cachingService.getCustomerById(1);
+        repositoryLatch.countDown();
+        addressLatch.countDown();
+
+        assertThat(afterTheChange).succeedsWithin(Duration.ofSeconds(10))
+                .extracting(customer -> customer.getAddressResponse().getStreet()).isEqualTo("New Street");
+        assertThat(beforeTheChange).succeedsWithin(Duration.ofSeconds(10));
+        assertThat(hotCustomerCache.get(1)).get()
+                .extracting(customer -> customer.getAddressResponse().getStreet()).isEqualTo("New Street");
+    }
+
+    private void assertAssembledWithoutBlocking(Function<Integer, CompletableFuture<CustomerResponse>> call) {
+        CompletableFuture<CustomerResponse> customerResponseCF = assertTimeoutPreemptively(NON_BLOCKING,
+                () -> call.apply(1));
+        assertThat(customerResponseCF).isNotDone();
+
+        repositoryLatch.countDown();
+
+        CustomerResponse customerResponse = customerResponseCF.join();
+        assertThat(customerResponse.getFullName()).isEqualTo("Jane Doe");
+        assertThat(customerResponse.getLoyaltyResponse().getPoints()).isEqualTo(42L);
+        assertThat(customerResponse.getPurchaseTransactions()).isEmpty();
+        assertThat(customerResponse.getDegradedSections()).isNull();
+    }
+}
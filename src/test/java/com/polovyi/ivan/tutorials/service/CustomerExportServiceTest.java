@@ -0,0 +1,173 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.configuration.ExportProperties;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.dto.ExportResponse;
+import com.polovyi.ivan.tutorials.entity.CustomerEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CustomerExportServiceTest {
+
+    private static final int CUSTOMERS = 50;
+
+    private static final int MAX_IN_FLIGHT = 5;
+
+    private final ExecutorService downstreamPool = Executors.newFixedThreadPool(8);
+
+    private final AtomicInteger rowsRead = new AtomicInteger();
+
+    private final CustomerCompletableFeatureService customerCompletableFeatureService =
+            mock(CustomerCompletableFeatureService.class);
+
+    private final CustomerExportService service = new CustomerExportService(new CustomerStreamService(null, null,
+            null, new ObjectMapper().findAndRegisterModules()) {
+
+        @Override
+        public void forEachCustomer(Consumer<CustomerEntity> consumer) {
+            IntStream.rangeClosed(1, CUSTOMERS)
+                    .mapToObj(id -> new CustomerEntity(id, "Customer " + id, "555-0100", LocalDate.of(2020, 1, 1)))
+                    .forEach(customer -> {
+                        rowsRead.incrementAndGet();
+                        consumer.accept(customer);
+                    });
+        }
+    }, customerCompletableFeatureService, exportProperties());
+
+    @AfterEach
+    void tearDown() {
+        downstreamPool.shutdownNow();
+        service.destroy();
+    }
+
+    @Test
+    void onlyTheExportingThreadWritesAndEveryEnrichedCustomerIsWritten() {
+        enrichOnTheDownstreamPool(Set.of(7));
+        Set<Thread> writers = ConcurrentHashMap.newKeySet();
+        ByteArrayOutputStream lines = new ByteArrayOutputStream() {
+
+            @Override
+            public synchronized void write(byte[] bytes, int offset, int length) {
+                writers.add(Thread.currentThread());
+                super.write(bytes, offset, length);
+            }
+        };
+
+        ExportResponse exported = service.export(lines, 4);
+
+        assertThat(exported.getCustomers()).isEqualTo(CUSTOMERS - 1);
+        assertThat(writers).containsExactly(Thread.currentThread());
+        List<String> written = lines.toString().lines().collect(Collectors.toList());
+        assertThat(written).hasSize(CUSTOMERS - 1)
+                .noneMatch(line -> line.contains("\"id\":7,"));
+    }
+
+    @Test
+    void theFirstFailedWriteStopsTheExportAndIsRethrown() {
+        enrichOnTheDownstreamPool(Set.of());
+        OutputStream closed = new OutputStream() {
+
+            @Override
+            public void write(int value) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThatThrownBy(() -> service.export(closed, 2))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Broken pipe");
+        assertThat(rowsRead.get()).isEqualTo(3);
+    }
+
+    @Test
+    void degradedSectionsAreCountedInTheResult() {
+        when(customerCompletableFeatureService.enrichCustomer(any())).thenAnswer(invocation -> {
+            CustomerResponse customer = invocation.getArgument(0);
+            if (customer.getId() % 10 == 0) {
+                customer.setDegradedSections(Set.of(Downstream.ADDRESS, Downstream.LOYALTY));
+            }
+            return CompletableFuture.completedFuture(customer);
+        });
+
+        ExportResponse exported = service.export(new ByteArrayOutputStream(), 4);
+
+        assertThat(exported.getCustomers()).isEqualTo(CUSTOMERS);
+        assertThat(exported.getDegradedSections())
+                .containsOnly(entry(Downstream.ADDRESS, 5L), entry(Downstream.LOYALTY, 5L));
+    }
+
+    @Test
+    void concurrentExportsShareOneBudgetOfCustomersInFlight() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(customerCompletableFeatureService.enrichCustomer(any())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            CustomerResponse customer = invocation.getArgument(0);
+            return CompletableFuture.supplyAsync(() -> {
+                sleep();
+                inFlight.decrementAndGet();
+                return customer;
+            }, downstreamPool);
+        });
+
+        CompletableFuture<ExportResponse> first = CompletableFuture.supplyAsync(
+                () -> service.export(new ByteArrayOutputStream(), 8));
+        CompletableFuture<ExportResponse> second = CompletableFuture.supplyAsync(
+                () -> service.export(new ByteArrayOutputStream(), 8));
+
+        assertThat(first.get(10, TimeUnit.SECONDS).getCustomers()).isEqualTo(CUSTOMERS);
+        assertThat(second.get(10, TimeUnit.SECONDS).getCustomers()).isEqualTo(CUSTOMERS);
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(MAX_IN_FLIGHT);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExportProperties exportProperties() {
+        ExportProperties exportProperties = new ExportProperties();
+        exportProperties.setMaxInFlight(MAX_IN_FLIGHT);
+        return exportProperties;
+    }
+
+    private void enrichOnTheDownstreamPool(Set<Integer> failing) {
+        when(customerCompletableFeatureService.enrichCustomer(any())).thenAnswer(invocation -> {
+            CustomerResponse customer = invocation.getArgument(0);
+            return CompletableFuture.supplyAsync(() -> {
+                if (failing.contains(customer.getId())) {
+                    throw new IllegalStateException("downstream down");
+                }
+                return customer;
+            }, downstreamPool);
+        });
+    }
+}
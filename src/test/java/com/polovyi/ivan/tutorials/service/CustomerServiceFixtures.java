@@ -0,0 +1,48 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polovyi.ivan.tutorials.client.AddressClient;
+import com.polovyi.ivan.tutorials.client.ClientBatchers;
+import com.polovyi.ivan.tutorials.client.FinancialClient;
+import com.polovyi.ivan.tutorials.client.LoyaltyClient;
+import com.polovyi.ivan.tutorials.client.PurchaseTransactionClient;
+import com.polovyi.ivan.tutorials.configuration.DownstreamExecutors;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
+import com.polovyi.ivan.tutorials.configuration.WarmupProperties;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Wires the customer services outside a Spring context, for the tests and the benchmarks module
+ * (shipped to it in the test jar). Collaborators the callers never vary get their defaults here.
+ */
+public class CustomerServiceFixtures {
+
+    public static CustomerCompletableFeatureService completableFeatureService(CustomerRepository customerRepository,
+            AddressClient addressClient, PurchaseTransactionClient purchaseTransactionClient,
+            FinancialClient financialClient, LoyaltyClient loyaltyClient, DownstreamProperties downstreamProperties,
+            DownstreamExecutors downstreamExecutors, MeterRegistry meterRegistry) {
+        return completableFeatureService(customerRepository, addressClient, purchaseTransactionClient,
+                financialClient, loyaltyClient, downstreamProperties, downstreamExecutors, meterRegistry,
+                new HotCustomerCache(new WarmupProperties(), new ObjectMapper(), meterRegistry));
+    }
+
+    public static CustomerCompletableFeatureService completableFeatureService(CustomerRepository customerRepository,
+            AddressClient addressClient, PurchaseTransactionClient purchaseTransactionClient,
+            FinancialClient financialClient, LoyaltyClient loyaltyClient, DownstreamProperties downstreamProperties,
+            DownstreamExecutors downstreamExecutors, MeterRegistry meterRegistry, HotCustomerCache hotCustomerCache) {
+        return new CustomerCompletableFeatureService(customerRepository, addressClient, purchaseTransactionClient,
+                financialClient, loyaltyClient,
+                new DownstreamCalls(downstreamExecutors, downstreamProperties, meterRegistry), downstreamProperties,
+                new ClientBatchers(addressClient, purchaseTransactionClient, financialClient, loyaltyClient,
+                        downstreamProperties, downstreamExecutors, meterRegistry), new RequestMetrics(meterRegistry),
+                hotCustomerCache, event -> { });
+    }
+
+    public static CustomerService customerService(CustomerRepository customerRepository, AddressClient addressClient,
+            PurchaseTransactionClient purchaseTransactionClient, FinancialClient financialClient,
+            LoyaltyClient loyaltyClient, DownstreamExecutors downstreamExecutors, MeterRegistry meterRegistry) {
+        return new CustomerService(customerRepository, addressClient, purchaseTransactionClient, financialClient,
+                loyaltyClient, downstreamExecutors, new RequestMetrics(meterRegistry), event -> { });
+    }
+}
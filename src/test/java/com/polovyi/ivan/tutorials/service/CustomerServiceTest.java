@@ -0,0 +1,83 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.polovyi.ivan.tutorials.dto.CustomerPage;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.entity.CustomerEntity;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerServiceTest {
+
+    private final CustomerRepository customerRepository = mock(CustomerRepository.class);
+
+    private final CustomerService service = new CustomerService(customerRepository, null, null, null, null, null,
+            null, null);
+
+    @Test
+    void aFullPageWithMoreRowsAfterItPointsToItsLastCustomer() {
+        givenCustomers(1, 2, 3, 4, 5);
+
+        CustomerPage page = service.getCustomersPage(null, 2);
+
+        assertThat(page.getCustomers()).extracting(CustomerResponse::getId).containsExactly(1, 2);
+        assertThat(page.getNextCursor()).isEqualTo(2);
+        verify(customerRepository).findByIdGreaterThanOrderByIdAsc(Integer.MIN_VALUE, PageRequest.of(0, 3));
+    }
+
+    @Test
+    void followingTheCursorReturnsTheNextPage() {
+        givenCustomers(1, 2, 3, 4, 5);
+
+        CustomerPage page = service.getCustomersPage(2, 2);
+
+        assertThat(page.getCustomers()).extracting(CustomerResponse::getId).containsExactly(3, 4);
+        assertThat(page.getNextCursor()).isEqualTo(4);
+    }
+
+    @Test
+    void aLastPageOfExactlyLimitRowsHasNoNextCursor() {
+        givenCustomers(1, 2, 3, 4);
+
+        CustomerPage page = service.getCustomersPage(2, 2);
+
+        assertThat(page.getCustomers()).extracting(CustomerResponse::getId).containsExactly(3, 4);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void aShortLastPageHasNoNextCursor() {
+        givenCustomers(1, 2, 3);
+
+        CustomerPage page = service.getCustomersPage(2, 2);
+
+        assertThat(page.getCustomers()).extracting(CustomerResponse::getId).containsExactly(3);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    private void givenCustomers(Integer... ids) {
+        List<CustomerEntity> customers = List.of(ids).stream()
+                .map(id -> new CustomerEntity(id, "Customer " + id, "555-01" + id, LocalDate.of(2020, 1, 1)))
+                .collect(Collectors.toList());
+        when(customerRepository.findByIdGreaterThanOrderByIdAsc(anyInt(), any())).thenAnswer(invocation -> {
+            int afterId = invocation.getArgument(0);
+            Pageable pageable = invocation.getArgument(1);
+            return customers.stream()
+                    .filter(customer -> customer.getId() > afterId)
+                    .limit(pageable.getPageSize())
+                    .collect(Collectors.toList());
+        });
+    }
+}
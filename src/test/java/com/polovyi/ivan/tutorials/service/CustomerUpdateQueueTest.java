@@ -0,0 +1,103 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polovyi.ivan.tutorials.configuration.WriteBehindProperties;
+import com.polovyi.ivan.tutorials.entity.CustomerUpdateEntity;
+import com.polovyi.ivan.tutorials.entity.CustomerUpdateStatus;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import com.polovyi.ivan.tutorials.repository.CustomerUpdateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerUpdateQueueTest {
+
+    private final CustomerUpdateRepository customerUpdateRepository = mock(CustomerUpdateRepository.class);
+
+    private final CustomerCompletableFeatureService customerCompletableFeatureService =
+            mock(CustomerCompletableFeatureService.class);
+
+    private final ExecutorService clientPool = Executors.newSingleThreadExecutor();
+
+    private final CustomerUpdateQueue queue = new CustomerUpdateQueue(customerUpdateRepository,
+            mock(CustomerRepository.class), customerCompletableFeatureService, new WriteBehindProperties(),
+            new ObjectMapper(), new SimpleMeterRegistry());
+
+    private final CustomerUpdateEntity update = CustomerUpdateEntity.builder()
+            .id(1L)
+            .customerId(7)
+            .payload("{\"phoneNumber\":\"555-0100\"}")
+            .status(CustomerUpdateStatus.PENDING)
+            .createdAt(Instant.now())
+            .build();
+
+    @AfterEach
+    void tearDown() {
+        clientPool.shutdownNow();
+        queue.destroy();
+    }
+
+    @Test
+    void aWriteThatFailsBeforeItStartsReleasesTheCustomerAndRequeuesItsUpdates() {
+        when(customerUpdateRepository.findPendingOfIdleCustomers(any(), any(), any())).thenReturn(List.of(update));
+        when(customerCompletableFeatureService.updateCustomer(eq(7), any()))
+                .thenThrow(new IllegalStateException("executor saturated"));
+
+        assertThat(queue.drain()).isTrue();
+
+        verify(customerUpdateRepository, timeout(5_000).times(2)).saveAll(anyList());
+        assertThat(update.getStatus()).isEqualTo(CustomerUpdateStatus.PENDING);
+        assertThat(update.getAttempts()).isEqualTo(1);
+        assertThat(update.getError()).isEqualTo("executor saturated");
+
+        queue.drain();
+
+        verify(customerCompletableFeatureService, timeout(5_000).times(2)).updateCustomer(eq(7), any());
+    }
+
+    @Test
+    void outcomesAreWrittenOnTheWriteBehindThreadRatherThanOnTheClientPool() {
+        Set<String> savingThreads = ConcurrentHashMap.newKeySet();
+        when(customerUpdateRepository.findPendingOfIdleCustomers(any(), any(), any())).thenReturn(List.of(update));
+        when(customerUpdateRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            savingThreads.add(Thread.currentThread().getName());
+            return invocation.getArgument(0);
+        });
+        when(customerCompletableFeatureService.updateCustomer(eq(7), any()))
+                .thenReturn(CompletableFuture.runAsync(() -> { }, clientPool));
+
+        queue.drain();
+
+        verify(customerUpdateRepository, timeout(5_000).times(2)).saveAll(anyList());
+        assertThat(update.getStatus()).isEqualTo(CustomerUpdateStatus.APPLIED);
+        assertThat(savingThreads).allMatch(name -> name.equals(Thread.currentThread().getName())
+                || name.startsWith("write-behind-"));
+        assertThat(savingThreads).anyMatch(name -> name.startsWith("write-behind-"));
+    }
+
+    @Test
+    void aQueueWithNothingToDoReportsIdle() {
+        when(customerUpdateRepository.findPendingOfIdleCustomers(any(), any(), any())).thenReturn(List.of());
+
+        assertThat(queue.drain()).isFalse();
+        verify(customerUpdateRepository, times(0)).saveAll(anyList());
+    }
+}
@@ -0,0 +1,80 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polovyi.ivan.tutorials.configuration.WarmupProperties;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerWarmupTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final WarmupProperties warmupProperties = warmupProperties();
+
+    private final CustomerCompletableFeatureService customerCompletableFeatureService =
+            mock(CustomerCompletableFeatureService.class);
+
+    private final HotCustomerCache hotCustomerCache = new HotCustomerCache(warmupProperties, new ObjectMapper(),
+            meterRegistry);
+
+    private final CustomerWarmup customerWarmup = new CustomerWarmup(hotCustomerCache,
+            customerCompletableFeatureService, mock(CustomerRepository.class), warmupProperties, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        customerWarmup.destroy();
+    }
+
+    @Test
+    void aCustomerThatIsLoadedButNotCachedIsReportedAsSuchAndNotReloadedOnTheNextRefresh() throws InterruptedException {
+        /* stands in for a degraded load, which the cache refuses */
+        when(customerCompletableFeatureService.warmCustomer(1)).thenReturn(CompletableFuture.completedFuture(false));
+        when(customerCompletableFeatureService.warmCustomer(2)).thenAnswer(invocation -> CompletableFuture.completedFuture(
+                hotCustomerCache.put(2, CustomerResponse.builder().id(2).build(), hotCustomerCache.stamp(2))));
+
+        customerWarmup.start();
+        awaitLoaded(2);
+        customerWarmup.refresh();
+
+        assertThat(loaded("uncached")).isEqualTo(1);
+        assertThat(loaded("cached")).isEqualTo(1);
+        verify(customerCompletableFeatureService, times(1)).warmCustomer(1);
+        verify(customerCompletableFeatureService, times(1)).warmCustomer(2);
+    }
+
+    private void awaitLoaded(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (loaded("cached") + loaded("uncached") < expected && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    private double loaded(String outcome) {
+        Counter counter = meterRegistry.find("warmup.loaded").tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static WarmupProperties warmupProperties() {
+        WarmupProperties warmupProperties = new WarmupProperties();
+        warmupProperties.setEnabled(true);
+        warmupProperties.setPreloadIds(List.of(1, 2));
+        /* refreshed by the test only */
+        warmupProperties.setRefreshInterval(Duration.ofHours(1));
+        return warmupProperties;
+    }
+}
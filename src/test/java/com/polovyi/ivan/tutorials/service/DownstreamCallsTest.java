@@ -0,0 +1,97 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.client.SimulatedDownstreamException;
+import com.polovyi.ivan.tutorials.configuration.DownstreamExecutors;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownstreamCallsTest {
+
+    private final DownstreamProperties downstreamProperties = new DownstreamProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Set<Downstream> degradedSections = ConcurrentHashMap.newKeySet();
+
+    private DownstreamExecutors downstreamExecutors;
+
+    private DownstreamCalls downstreamCalls;
+
+    @BeforeEach
+    void setUp() {
+        downstreamProperties.client(Downstream.ADDRESS).setTimeout(Duration.ofMillis(100));
+        downstreamExecutors = new DownstreamExecutors(downstreamProperties, meterRegistry);
+        downstreamCalls = new DownstreamCalls(downstreamExecutors, downstreamProperties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        downstreamExecutors.destroy();
+    }
+
+    @Test
+    void aReadOverItsBudgetIsInterruptedAndItsSectionDegraded() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        String address = downstreamCalls.withinBudget(Downstream.ADDRESS, downstreamCalls.read(Downstream.ADDRESS,
+                () -> sleep(Duration.ofSeconds(10), interrupted)), "fallback", degradedSections).join();
+
+        assertThat(address).isEqualTo("fallback");
+        assertThat(degradedSections).containsExactly(Downstream.ADDRESS);
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("downstream.degraded").tag("downstream", "ADDRESS").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void aFailedReadFallsBack() {
+        String address = downstreamCalls.withinBudget(Downstream.ADDRESS, downstreamCalls.read(Downstream.ADDRESS,
+                () -> {
+                    throw new SimulatedDownstreamException("ADDRESS failed");
+                }), "fallback", degradedSections).join();
+
+        assertThat(address).isEqualTo("fallback");
+        assertThat(degradedSections).containsExactly(Downstream.ADDRESS);
+    }
+
+    @Test
+    void theHedgedAttemptAnswersAndTheSlowOneIsCancelled() throws InterruptedException {
+        downstreamProperties.client(Downstream.ADDRESS).setTimeout(Duration.ofSeconds(5));
+        downstreamProperties.client(Downstream.ADDRESS).setHedgeDelay(Duration.ofMillis(50));
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        String address = downstreamCalls.withinBudget(Downstream.ADDRESS, downstreamCalls.read(Downstream.ADDRESS,
+                () -> attempts.incrementAndGet() == 1
+                        ? sleep(Duration.ofSeconds(10), interrupted)
+                        : "hedged"), "fallback", degradedSections).join();
+
+        assertThat(address).isEqualTo("hedged");
+        assertThat(degradedSections).isEmpty();
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("downstream.hedged").counter().count()).isEqualTo(1);
+    }
+
+    private static String sleep(Duration duration, CountDownLatch interrupted) {
+        try {
+            Thread.sleep(duration.toMillis());
+            return "slow";
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+            throw new SimulatedDownstreamException("interrupted");
+        }
+    }
+}
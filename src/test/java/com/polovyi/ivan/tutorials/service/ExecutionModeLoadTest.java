@@ -0,0 +1,169 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polovyi.ivan.tutorials.client.AddressClient;
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.client.DownstreamGuard;
+import com.polovyi.ivan.tutorials.client.DownstreamMetrics;
+import com.polovyi.ivan.tutorials.client.FinancialClient;
+import com.polovyi.ivan.tutorials.client.LatencySimulator;
+import com.polovyi.ivan.tutorials.client.LoyaltyClient;
+import com.polovyi.ivan.tutorials.client.PurchaseTransactionClient;
+import com.polovyi.ivan.tutorials.configuration.DataGeneratorProperties;
+import com.polovyi.ivan.tutorials.configuration.DataLoader;
+import com.polovyi.ivan.tutorials.configuration.DataStoreProperties;
+import com.polovyi.ivan.tutorials.configuration.DownstreamExecutors;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties.ExecutionMode;
+import com.polovyi.ivan.tutorials.configuration.SimulationProperties;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.entity.CustomerEntity;
+import com.polovyi.ivan.tutorials.repository.CustomerRepository;
+import com.polovyi.ivan.tutorials.utils.VirtualThreads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/*
+ * Runs a small load in every execution mode on each build. The timing comparison is opt-in:
+ * mvn test -Dtest=ExecutionModeLoadTest -DloadTest=true [-DloadTest.requests=200]
+ */
+@Slf4j
+class ExecutionModeLoadTest {
+
+    private static final boolean FULL_LOAD = Boolean.getBoolean("loadTest");
+    private static final int REQUESTS = Integer.getInteger("loadTest.requests", FULL_LOAD ? 100 : 20);
+    /* the simulated latencies are multiples of this unit: 1 s under full load, short enough for every build otherwise */
+    private static final Duration LATENCY_UNIT = FULL_LOAD ? Duration.ofSeconds(1) : Duration.ofMillis(20);
+
+    @Test
+    void everyExecutionModeAssemblesEveryCustomer() {
+        List<ExecutionMode> executionModes = VirtualThreads.isSupported()
+                ? List.of(ExecutionMode.values())
+                : List.of(ExecutionMode.COMMON_POOL, ExecutionMode.PLATFORM_POOLS);
+        for (ExecutionMode executionMode : executionModes) {
+            List<CustomerResponse> customers = new ArrayList<>();
+            runCompletableFeatureLoad(executionMode, customers);
+
+            assertThat(customers).as(executionMode.name()).hasSize(REQUESTS).allSatisfy(customer -> {
+                assertThat(customer.getId()).isNotNull();
+                assertThat(customer.getDegradedSections()).isNull();
+            });
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadTest", matches = "true")
+    void virtualThreadsOutperformCommonPoolUnderConcurrentLoad() {
+        assumeThat(VirtualThreads.isSupported()).as("virtual threads need Java 21+").isTrue();
+
+        Duration commonPool = runCompletableFeatureLoad(ExecutionMode.COMMON_POOL, new ArrayList<>());
+        Duration platformPools = runCompletableFeatureLoad(ExecutionMode.PLATFORM_POOLS, new ArrayList<>());
+        Duration virtualThreads = runCompletableFeatureLoad(ExecutionMode.VIRTUAL_THREADS, new ArrayList<>());
+        Duration virtualThreadsSync = runSynchronousLoad(ExecutionMode.VIRTUAL_THREADS);
+
+        log.info("{} concurrent getCustomerById requests: common-pool {} ms, platform-pools {} ms, "
+                        + "virtual-threads {} ms, virtual-threads (sync service) {} ms", REQUESTS,
+                commonPool.toMillis(), platformPools.toMillis(), virtualThreads.toMillis(),
+                virtualThreadsSync.toMillis());
+        assertThat(virtualThreads).isLessThan(commonPool);
+    }
+
+    private Duration runCompletableFeatureLoad(ExecutionMode executionMode, List<CustomerResponse> customers) {
+        DownstreamProperties downstreamProperties = downstreamProperties(executionMode);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DownstreamExecutors downstreamExecutors = new DownstreamExecutors(downstreamProperties, meterRegistry);
+        DownstreamGuard downstreamGuard = new DownstreamGuard(new DownstreamMetrics(meterRegistry),
+                downstreamProperties, meterRegistry);
+        AddressClient addressClient = new AddressClient(dataLoader(), latencySimulator(), downstreamGuard,
+                event -> { });
+        PurchaseTransactionClient purchaseTransactionClient = new PurchaseTransactionClient(dataLoader(),
+                latencySimulator(), downstreamGuard);
+        FinancialClient financialClient = new FinancialClient(dataLoader(), latencySimulator(), downstreamGuard,
+                event -> { });
+        LoyaltyClient loyaltyClient = new LoyaltyClient(dataLoader(), latencySimulator(), downstreamGuard);
+        CustomerCompletableFeatureService service = CustomerServiceFixtures.completableFeatureService(repository(),
+                addressClient, purchaseTransactionClient, financialClient, loyaltyClient, downstreamProperties,
+                downstreamExecutors, meterRegistry);
+        long startTime = System.nanoTime();
+        List<CompletableFuture<CustomerResponse>> responses = IntStream.rangeClosed(1, REQUESTS)
+                .mapToObj(service::getCustomerById)
+                .collect(Collectors.toList());
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).join();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startTime);
+        responses.forEach(response -> customers.add(response.join()));
+        downstreamExecutors.destroy();
+        return elapsed;
+    }
+
+    private Duration runSynchronousLoad(ExecutionMode executionMode) {
+        DownstreamProperties downstreamProperties = downstreamProperties(executionMode);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DownstreamExecutors downstreamExecutors = new DownstreamExecutors(downstreamProperties, meterRegistry);
+        DownstreamGuard downstreamGuard = new DownstreamGuard(new DownstreamMetrics(meterRegistry),
+                downstreamProperties, meterRegistry);
+        CustomerService service = CustomerServiceFixtures.customerService(repository(),
+                new AddressClient(dataLoader(), latencySimulator(), downstreamGuard, event -> { }),
+                new PurchaseTransactionClient(dataLoader(), latencySimulator(), downstreamGuard),
+                new FinancialClient(dataLoader(), latencySimulator(), downstreamGuard, event -> { }),
+                new LoyaltyClient(dataLoader(), latencySimulator(), downstreamGuard), downstreamExecutors,
+                meterRegistry);
+        long startTime = System.nanoTime();
+        List<CompletableFuture<?>> responses = IntStream.rangeClosed(1, REQUESTS)
+                .mapToObj(customerId -> CompletableFuture.supplyAsync(() -> service.getCustomerById(customerId),
+                        VirtualThreads.threadPerTaskExecutor("request-")))
+                .collect(Collectors.toList());
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).join();
+        downstreamExecutors.destroy();
+        return Duration.ofNanos(System.nanoTime() - startTime);
+    }
+
+    private DownstreamProperties downstreamProperties(ExecutionMode executionMode) {
+        DownstreamProperties downstreamProperties = new DownstreamProperties();
+        downstreamProperties.setExecutionMode(executionMode);
+        return downstreamProperties;
+    }
+
+    private CustomerRepository repository() {
+        CustomerRepository customerRepository = mock(CustomerRepository.class);
+        when(customerRepository.findById(any())).thenAnswer(invocation -> Optional.of(CustomerEntity.builder()
+                .id(invocation.getArgument(0))
+                .fullName("Load Test")
+                .phoneNumber("555-0100")
+                .createdAt(LocalDate.now())
+                .build()));
+        return customerRepository;
+    }
+
+    private DataLoader dataLoader() {
+        return new DataLoader(mock(CustomerRepository.class), mock(JdbcTemplate.class), new DataGeneratorProperties(),
+                new DataStoreProperties(), new ObjectMapper());
+    }
+
+    private LatencySimulator latencySimulator() {
+        SimulationProperties simulationProperties = new SimulationProperties();
+        simulationProperties.profile(Downstream.ADDRESS).getLatency().setFixed(LATENCY_UNIT);
+        simulationProperties.profile(Downstream.PURCHASE_TRANSACTION).getLatency()
+                .setFixed(LATENCY_UNIT.multipliedBy(3));
+        simulationProperties.profile(Downstream.FINANCIAL).getLatency().setFixed(LATENCY_UNIT.multipliedBy(2));
+        simulationProperties.profile(Downstream.LOYALTY).getLatency().setFixed(LATENCY_UNIT);
+        return new LatencySimulator(simulationProperties);
+    }
+}
@@ -0,0 +1,116 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polovyi.ivan.tutorials.client.Downstream;
+import com.polovyi.ivan.tutorials.configuration.CacheConfiguration;
+import com.polovyi.ivan.tutorials.configuration.CacheInvalidation;
+import com.polovyi.ivan.tutorials.configuration.DownstreamProperties;
+import com.polovyi.ivan.tutorials.configuration.WarmupProperties;
+import com.polovyi.ivan.tutorials.dto.CustomerResponse;
+import com.polovyi.ivan.tutorials.dto.FinancialResponse;
+import com.polovyi.ivan.tutorials.event.CustomerChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HotCustomerCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final HotCustomerCache hotCustomerCache = new HotCustomerCache(warmupProperties(), objectMapper,
+            new SimpleMeterRegistry());
+
+    @Test
+    void theJsonViewIsTheCustomerAsSerializedWhenItWasCached() throws IOException {
+        CustomerResponse customer = customer(1);
+        hotCustomerCache.put(1, customer, hotCustomerCache.stamp(1));
+        customer.setFullName("Changed after caching");
+
+        byte[] json = hotCustomerCache.getJson(1).orElseThrow();
+        assertThat(objectMapper.readValue(json, CustomerResponse.class).getFullName()).isEqualTo("Customer 1");
+
+        Arrays.fill(json, (byte) 0);
+
+        assertThat(objectMapper.readValue(hotCustomerCache.getJson(1).orElseThrow(), CustomerResponse.class))
+                .isEqualTo(customer(1));
+    }
+
+    @Test
+    void aChangedEventDropsTheCustomerAfterItsSectionWasEvictedFromTheClientCache() {
+        DownstreamProperties downstreamProperties = new DownstreamProperties();
+        downstreamProperties.client(Downstream.ADDRESS).getCache().setEnabled(true);
+        CacheManager cacheManager = new CacheConfiguration().cacheManager(downstreamProperties);
+        Cache addresses = cacheManager.getCache(Downstream.ADDRESS.key());
+        List<String> seenByLaterListeners = new ArrayList<>();
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(CacheManager.class, () -> cacheManager);
+            context.registerBean(CacheInvalidation.class);
+            context.registerBean(HotCustomerCache.class, () -> hotCustomerCache);
+            context.addApplicationListener(ApplicationListener.forPayload(event ->
+                    seenByLaterListeners.add(addresses.get(1) == null ? "evicted" : "cached")));
+            context.refresh();
+            addresses.put(1, "old address");
+            hotCustomerCache.put(1, customer(1), hotCustomerCache.stamp(1));
+
+            context.publishEvent(new CustomerChangedEvent(1, Downstream.ADDRESS));
+        }
+
+        assertThat(seenByLaterListeners).containsExactly("evicted");
+        assertThat(addresses.get(1)).isNull();
+        assertThat(hotCustomerCache.get(1)).isEmpty();
+        assertThat(hotCustomerCache.getJson(1)).isEmpty();
+    }
+
+    @Test
+    void anUpdateOnlyHoldsBackLoadsOfTheCustomerItChanged() {
+        long first = hotCustomerCache.stamp(1);
+        long second = hotCustomerCache.stamp(2);
+
+        hotCustomerCache.onCustomerChanged(new CustomerChangedEvent(1, Downstream.ADDRESS));
+        hotCustomerCache.put(1, customer(1), first);
+        hotCustomerCache.put(2, customer(2), second);
+
+        assertThat(hotCustomerCache.get(1)).isEmpty();
+        assertThat(hotCustomerCache.get(2)).isPresent();
+    }
+
+    @Test
+    void readersCannotChangeTheCachedCustomersLists() {
+        List<FinancialResponse> financialResponses = new ArrayList<>(List.of(new FinancialResponse("1", "4111", null)));
+        CustomerResponse loaded = customer(1).toBuilder().financialResponses(financialResponses).build();
+        hotCustomerCache.put(1, loaded, hotCustomerCache.stamp(1));
+        financialResponses.clear();
+
+        CustomerResponse read = hotCustomerCache.get(1).orElseThrow();
+        assertThatThrownBy(() -> read.getFinancialResponses().clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+        read.setFinancialResponses(null);
+
+        assertThat(hotCustomerCache.get(1).orElseThrow().getFinancialResponses()).hasSize(1);
+    }
+
+    private static CustomerResponse customer(Integer customerId) {
+        return CustomerResponse.builder()
+                .id(customerId)
+                .fullName("Customer " + customerId)
+                .build();
+    }
+
+    private static WarmupProperties warmupProperties() {
+        WarmupProperties warmupProperties = new WarmupProperties();
+        warmupProperties.setEnabled(true);
+        warmupProperties.setSerializedView(true);
+        return warmupProperties;
+    }
+}
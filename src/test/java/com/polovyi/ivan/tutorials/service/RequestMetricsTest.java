@@ -0,0 +1,54 @@
+package com.polovyi.ivan.tutorials.service;
+
+import com.polovyi.ivan.tutorials.client.Downstream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RequestMetrics requestMetrics = new RequestMetrics(meterRegistry);
+
+    @Test
+    void everySectionIsTimedAndTheSlowestIsTheCriticalPath() {
+        RequestMetrics.Timing timing = requestMetrics.start("test", "get");
+        assertThat(active()).isEqualTo(1);
+
+        String address = timing.section(Downstream.ADDRESS, () -> "address");
+        CompletableFuture<String> loyalty = timing.sectionAsync(Downstream.LOYALTY,
+                () -> CompletableFuture.supplyAsync(() -> "loyalty",
+                        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS)));
+        timing.finish(loyalty).join();
+
+        assertThat(address).isEqualTo("address");
+        assertThat(active()).isZero();
+        assertThat(meterRegistry.get("customer.request").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("customer.request.section").timers()).hasSize(2);
+        assertThat(meterRegistry.get("customer.request.critical.path").tag("section", Downstream.LOYALTY.name())
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void aFailedRequestIsCountedAsAnError() {
+        RequestMetrics.Timing timing = requestMetrics.start("test", "get");
+
+        assertThatThrownBy(() -> timing.finish(() -> {
+            throw new IllegalStateException("downstream down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(active()).isZero();
+        assertThat(meterRegistry.get("customer.request").tag("outcome", "error").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("customer.request.critical.path").counter()).isNull();
+    }
+
+    private int active() {
+        return meterRegistry.get("customer.request.active").longTaskTimer().activeTasks();
+    }
+}